@@ -0,0 +1,13 @@
+package com.johnathongoss.testing;
+
+import java.lang.management.ManagementFactory;
+
+/** Shared by the headless benchmarks. **/
+public class BenchUtils {
+
+	/** Bytes the calling thread has allocated so far, take the difference around the code being measured. **/
+	public static long allocated(){
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+		return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+}
@@ -0,0 +1,126 @@
+package com.johnathongoss.testing;
+
+
+import com.badlogic.gdx.graphics.g2d.Sprite;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.physics.box2d.Body;
+import com.badlogic.gdx.physics.box2d.BodyDef;
+import com.badlogic.gdx.physics.box2d.BodyDef.BodyType;
+import com.badlogic.gdx.physics.box2d.CircleShape;
+import com.badlogic.gdx.physics.box2d.FixtureDef;
+import com.badlogic.gdx.physics.box2d.World;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.GdxNativesLoader;
+import com.badlogic.gdx.utils.TimeUtils;
+import com.johnathongoss.libgdxtests.physics.BodyFactory;
+import com.johnathongoss.libgdxtests.physics.BodyFactory.Template;
+import com.johnathongoss.libgdxtests.physics.BodyRegistry;
+
+/**
+ * Heap bytes and time per spawn, spawning and removing waves of balls the
+ * way the Box2D test used to (new shape and sprite, createBody/destroyBody)
+ * and through the recycling BodyFactory.
+ *
+ * Arguments: [waves] [bodies per wave]
+ */
+public class Box2DSpawnBench {
+
+	interface Spawns {
+		public void spawnWave(int count);
+		public void removeWave();
+	}
+
+	public static void main(String[] args) {
+		int waves = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+		int count = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+
+		GdxNativesLoader.load();
+
+		// Warm up both before measuring
+		run(createAndDestroy(), 20, count);
+		run(factory(), 20, count);
+
+		report("Create/destroy", run(createAndDestroy(), waves, count), waves*count);
+		report("BodyFactory", run(factory(), waves, count), waves*count);
+	}
+
+	static void report(String name, long[] result, int spawns){
+		System.out.println(name + ": " + result[0] / spawns + " bytes/spawn, " + result[1] / spawns + " ns/spawn");
+	}
+
+	/** Returns allocated bytes and nanos over every wave. **/
+	static long[] run(Spawns spawns, int waves, int count){
+		long bytes = BenchUtils.allocated();
+		long start = TimeUtils.nanoTime();
+		for (int i = 0; i < waves; i++){
+			spawns.spawnWave(count);
+			spawns.removeWave();
+		}
+		return new long[] {BenchUtils.allocated() - bytes, TimeUtils.nanoTime() - start};
+	}
+
+	/** What Box2D.createBall did per ball before the factory. **/
+	static Spawns createAndDestroy(){
+		final World world = new World(new Vector2(0, -9.81f), true);
+		final BodyRegistry registry = new BodyRegistry();
+		final Array<Body> live = new Array<Body>();
+		final BodyDef bodyDef = new BodyDef();
+		final FixtureDef fixtureDef = new FixtureDef();
+
+		return new Spawns() {
+			@Override
+			public void spawnWave(int count) {
+				for (int i = 0; i < count; i++){
+					bodyDef.type = BodyType.DynamicBody;
+					bodyDef.position.set(i*0.5f, 5);
+
+					CircleShape ballShape = new CircleShape();
+					ballShape.setRadius(0.5f);
+					fixtureDef.shape = ballShape;
+
+					Sprite sprite = new Sprite();
+					sprite.setSize(1, 1);
+					sprite.setOrigin(0.5f, 0.5f);
+
+					Body ball = world.createBody(bodyDef);
+					ball.setUserData(sprite);
+					registry.add(ball, sprite);
+					ball.createFixture(fixtureDef);
+					ballShape.dispose();
+					live.add(ball);
+				}
+			}
+
+			@Override
+			public void removeWave() {
+				for (int i = 0; i < live.size; i++){
+					registry.remove(live.get(i));
+					world.destroyBody(live.get(i));
+				}
+				live.clear();
+			}
+		};
+	}
+
+	static Spawns factory(){
+		final World world = new World(new Vector2(0, -9.81f), true);
+		final BodyFactory factory = new BodyFactory(world, new BodyRegistry());
+		final Template ball = BodyFactory.circle(0.5f, null);
+		final Array<Body> live = new Array<Body>();
+
+		return new Spawns() {
+			@Override
+			public void spawnWave(int count) {
+				for (int i = 0; i < count; i++)
+					live.add(factory.obtain(ball, i*0.5f, 5, 0));
+			}
+
+			@Override
+			public void removeWave() {
+				for (int i = 0; i < live.size; i++)
+					factory.free(live.get(i));
+				live.clear();
+			}
+		};
+	}
+}
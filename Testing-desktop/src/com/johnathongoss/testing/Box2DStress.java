@@ -0,0 +1,51 @@
+package com.johnathongoss.testing;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.physics.box2d.World;
+import com.badlogic.gdx.utils.GdxNativesLoader;
+import com.johnathongoss.libgdxtests.physics.PhysicsWorld;
+import com.johnathongoss.libgdxtests.physics.StressScenario;
+import com.johnathongoss.libgdxtests.physics.StressScenario.BareSpawner;
+
+/**
+ * Runs the Box2D stress ramp without a display, in the same 1280x720 area
+ * the Box2D test uses, and writes the per step metrics as CSV.
+ *
+ * Arguments: [csv file] [max bodies] [increment] [interval] [seed]
+ */
+public class Box2DStress {
+
+	static final int SETTLE_STEPS = 300;
+
+	public static void main(String[] args) {
+		FileHandle csv = new FileHandle(args.length > 0 ? args[0] : "box2d_stress.csv");
+		int maxBodies = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+		int increment = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+		int interval = args.length > 3 ? Integer.parseInt(args[3]) : 30;
+		long seed = args.length > 4 ? Long.parseLong(args[4]) : 1337;
+
+		GdxNativesLoader.load();
+
+		float width = PhysicsWorld.toBox(1280), height = PhysicsWorld.toBox(720);
+		World world = new World(new Vector2(0, -9.81f), true);
+		StressScenario.createBounds(world, width, height);
+
+		BareSpawner spawner = new BareSpawner(world);
+		StressScenario stress = new StressScenario(world, spawner, width, height, seed);
+		stress.setRamp(increment, interval, maxBodies);
+
+		float total = stress.run(PhysicsWorld.STEP, PhysicsWorld.VELOCITY_ITERATIONS, PhysicsWorld.POSITION_ITERATIONS, SETTLE_STEPS);
+		stress.save(csv);
+
+		StressScenario.Sample last = stress.sample;
+		System.out.println(stress.getSteps() + " steps, " + last.bodies + " bodies, avg "
+				+ total / stress.getSteps() + " ms, peak " + stress.getPeakMillis() + " ms");
+		System.out.println("Final: " + last.pairs + " pairs, " + last.contacts + " contacts, "
+				+ last.awake + " awake, " + last.islands + " islands");
+		System.out.println("Wrote " + csv.file().getAbsolutePath());
+
+		spawner.dispose();
+		world.dispose();
+	}
+}
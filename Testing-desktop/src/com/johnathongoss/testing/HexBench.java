@@ -0,0 +1,254 @@
+package com.johnathongoss.testing;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Random;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.JsonWriter;
+import com.badlogic.gdx.utils.StreamUtils;
+import com.johnathongoss.libgdxtests.hex.HexLayout;
+import com.johnathongoss.libgdxtests.hex.HexMap;
+import com.johnathongoss.libgdxtests.hex.HexPathfinder;
+import com.johnathongoss.libgdxtests.hex.HexQueries;
+import com.johnathongoss.libgdxtests.hex.HexRegions;
+import com.johnathongoss.libgdxtests.hex.MoveCosts;
+
+/**
+ * Benchmarks for the hex package, headless, at a few map sizes: building a
+ * map, walking neighbours, picking, A*, range and field of view queries, and
+ * keeping selected regions up to date. Each is warmed up, then timed with
+ * the bytes the thread allocated meanwhile. Results are printed and saved
+ * as JSON, so runs from different commits can be compared. Field of view is
+ * checked against a lone wall in each direction first.
+ *
+ * Arguments: [output file] [label, eg. the commit] [seed]
+ */
+public class HexBench {
+
+	static final int[] SIZES = {100, 500, 1000};
+	static final int GRASS = 0, FOREST = 1, WATER = 2;
+	static final int RADIUS = 10;
+	static final float SELECTED = 0.25f;
+
+	/** Something that does count operations. **/
+	static abstract class Benchmark {
+		final String name;
+
+		Benchmark(String name) {
+			this.name = name;
+		}
+
+		abstract void run(int count);
+	}
+
+	static class Result {
+		String name;
+		int size, operations;
+		long nanos, bytes;
+	}
+
+	/** Keeps the JIT from dropping work whose result isn't used. **/
+	static long sink;
+
+	public static void main(String[] args) throws IOException {
+		File output = new File(args.length > 0 ? args[0] : "hexbench.json");
+		String label = args.length > 1 ? args[1] : "";
+		long seed = args.length > 2 ? Long.parseLong(args[2]) : 1337;
+
+		checkFieldOfView();
+
+		Array<Result> results = new Array<Result>();
+		for (final int size : SIZES){
+			final Random random = new Random(seed);
+			final HexMap map = randomMap(size, random);
+			final int cells = map.size();
+			final int[] picks = randomCells(map, 4096, random);
+
+			measure(results, size, 2 + 2000000/cells, new Benchmark("construct") {
+				@Override
+				void run(int count) {
+					for (int i = 0; i < count; i++)
+						sink += HexMap.rectangle(size, size).size();
+				}
+			});
+
+			measure(results, size, cells*4, new Benchmark("neighbors") {
+				@Override
+				void run(int count) {
+					long total = 0;
+					for (int n = 0; n < count; n++){
+						int i = n % cells;
+						for (int links = map.getLinks(i); links != 0; links &= links - 1)
+							total += i + map.getOffset(Integer.numberOfTrailingZeros(links));
+					}
+					sink += total;
+				}
+			});
+
+			final HexLayout layout = HexLayout.hexGridTest();
+			final float[] points = new float[8192];
+			for (int i = 0; i < points.length; i += 2){
+				points[i] = random.nextFloat()*layout.getCenterX(map.width, 0);
+				points[i + 1] = random.nextFloat()*layout.getCenterY(0, map.height);
+			}
+			measure(results, size, 1000000, new Benchmark("pick") {
+				@Override
+				void run(int count) {
+					for (int i = 0; i < count; i++){
+						int point = (i & 4095)*2;
+						sink += layout.pick(map, points[point], points[point + 1]);
+					}
+				}
+			});
+
+			final HexPathfinder pathfinder = new HexPathfinder(map);
+			final MoveCosts walking = new MoveCosts().set(FOREST, 2).set(WATER, MoveCosts.BLOCKED);
+			final IntArray out = new IntArray(4096);
+			measure(results, size, Math.max(200, 200000/size), new Benchmark("path") {
+				@Override
+				void run(int count) {
+					for (int i = 0; i < count; i++){
+						pathfinder.findPath(picks[(i*2) & 4095], picks[(i*2 + 1) & 4095], walking, out);
+						sink += out.size;
+					}
+				}
+			});
+
+			final HexQueries queries = new HexQueries(map);
+			measure(results, size, 20000, new Benchmark("range " + RADIUS) {
+				@Override
+				void run(int count) {
+					for (int i = 0; i < count; i++)
+						sink += queries.range(picks[i & 4095], RADIUS, out).size;
+				}
+			});
+
+			measure(results, size, 20000, new Benchmark("field of view " + RADIUS) {
+				@Override
+				void run(int count) {
+					for (int i = 0; i < count; i++)
+						sink += queries.fieldOfView(picks[i & 4095], RADIUS, out).size;
+				}
+			});
+
+			final HexRegions regions = new HexRegions(map, HexRegions.SELECTED);
+			measure(results, size, 100000, new Benchmark("region toggle") {
+				@Override
+				void run(int count) {
+					for (int i = 0; i < count; i++){
+						int cell = picks[i & 4095];
+						map.toggleFlag(cell, HexMap.SELECTED);
+						sink += regions.getSize(cell);
+					}
+				}
+			});
+			regions.dispose();
+		}
+
+		write(output, label, seed, results);
+		System.out.println("Saved " + output.getPath());
+	}
+
+	/**
+	 * Water (blocked and opaque), forest and grass, with a quarter of the
+	 * cells selected. Past about half, selected cells join into regions
+	 * spanning the map, and every toggle in one re-floods it.
+	 */
+	static HexMap randomMap(int size, Random random){
+		HexMap map = HexMap.rectangle(size, size);
+		for (int i = 0; i < map.size(); i++){
+			float roll = random.nextFloat();
+			map.setTerrain(i, roll < 0.15f ? WATER : roll < 0.35f ? FOREST : GRASS);
+			map.setFlag(i, HexQueries.OPAQUE, roll < 0.15f);
+			map.setFlag(i, HexMap.SELECTED, random.nextFloat() < SELECTED);
+		}
+		return map;
+	}
+
+	/**
+	 * A wall next to the centre of an open map, in each direction in turn,
+	 * has to be seen and hide the line behind it, and nothing else: every
+	 * direction has to hide as many cells.
+	 */
+	static void checkFieldOfView(){
+		IntArray visible = new IntArray();
+		int hidden = -1;
+		for (int d = 0; d < 6; d++){
+			HexMap map = new HexMap(2*RADIUS + 1, 2*RADIUS + 1);
+			int center = map.index(RADIUS, RADIUS);
+			map.setFlag(map.getNeighbor(center, d), HexQueries.OPAQUE, true);
+			new HexQueries(map).fieldOfView(center, RADIUS, visible);
+
+			for (int k = 1; k <= RADIUS; k++){
+				int cell = map.index(RADIUS + HexMap.DIRECTION_Q[d]*k, RADIUS + HexMap.DIRECTION_R[d]*k);
+				if (visible.contains(cell) != (k == 1))
+					throw new IllegalStateException("Wall in direction " + d + ": cell " + k + " out is " + (k == 1 ? "hidden" : "visible"));
+			}
+
+			int count = 3*RADIUS*(RADIUS + 1) + 1 - visible.size;
+			if (hidden != -1 && count != hidden)
+				throw new IllegalStateException("Wall in direction " + d + " hides " + count + " cells, direction 0 hides " + hidden);
+			hidden = count;
+		}
+	}
+
+	/** Used cells, not water. **/
+	static int[] randomCells(HexMap map, int count, Random random){
+		int[] cells = new int[count];
+		for (int i = 0; i < count; i++){
+			int cell;
+			do {
+				cell = random.nextInt(map.size());
+			} while (!map.isUsed(cell) || map.getTerrain(cell) == WATER);
+			cells[i] = cell;
+		}
+		return cells;
+	}
+
+	static void measure(Array<Result> results, int size, int count, Benchmark benchmark){
+		benchmark.run(Math.max(1, count/5));
+
+		Result result = new Result();
+		result.name = benchmark.name;
+		result.size = size;
+		result.operations = count;
+		long bytes = BenchUtils.allocated(), start = System.nanoTime();
+		benchmark.run(count);
+		result.nanos = System.nanoTime() - start;
+		result.bytes = BenchUtils.allocated() - bytes;
+		results.add(result);
+
+		System.out.println(size + " x " + size + " " + benchmark.name + ": " + (long)(count/(result.nanos/1e9)) + " ops/s, "
+				+ result.nanos/count + " ns, " + result.bytes/count + " bytes/op");
+	}
+
+	static void write(File output, String label, long seed, Array<Result> results) throws IOException {
+		JsonWriter json = new JsonWriter(new FileWriter(output));
+		try {
+			json.setOutputType(JsonWriter.OutputType.json);
+			json.object();
+			json.set("label", label);
+			json.set("time", System.currentTimeMillis());
+			json.set("java", System.getProperty("java.version"));
+			json.set("seed", seed);
+			json.array("results");
+			for (Result result : results){
+				json.object();
+				json.set("name", result.name);
+				json.set("size", result.size);
+				json.set("operations", result.operations);
+				json.set("opsPerSecond", (long)(result.operations/(result.nanos/1e9)));
+				json.set("nanosPerOp", (double)result.nanos/result.operations);
+				json.set("bytesPerOp", (double)result.bytes/result.operations);
+				json.pop();
+			}
+			json.pop();
+			json.pop();
+		} finally {
+			StreamUtils.closeQuietly(json);
+		}
+	}
+}
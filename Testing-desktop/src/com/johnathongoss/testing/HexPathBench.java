@@ -0,0 +1,123 @@
+package com.johnathongoss.testing;
+
+import java.util.Random;
+
+import com.badlogic.gdx.utils.IntArray;
+import com.johnathongoss.libgdxtests.hex.HexMap;
+import com.johnathongoss.libgdxtests.hex.HexPathfinder;
+import com.johnathongoss.libgdxtests.hex.MoveCosts;
+
+/**
+ * Paths per second on random maps of a few sizes: A* between random pairs
+ * and Dijkstra out to a movement budget. Some A* costs are checked against a
+ * full Dijkstra first.
+ *
+ * Arguments: [queries per size] [seed]
+ */
+public class HexPathBench {
+
+	static final int GRASS = 0, FOREST = 1, WATER = 2;
+	static final int[] SIZES = {100, 500, 1000};
+	static final float BUDGET = 20;
+
+	public static void main(String[] args) {
+		int queries = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+		long seed = args.length > 1 ? Long.parseLong(args[1]) : 1337;
+
+		MoveCosts walking = new MoveCosts().set(FOREST, 2).set(WATER, MoveCosts.BLOCKED);
+
+		for (int size : SIZES){
+			Random random = new Random(seed);
+			HexMap map = randomMap(size, random);
+			HexPathfinder pathfinder = new HexPathfinder(map);
+			int[] pairs = randomPairs(map, queries, random);
+
+			verify(map, pathfinder, walking, pairs, 20);
+
+			// Warm up, then measure
+			runPaths(pathfinder, walking, pairs, queries/10);
+			long[] paths = runPaths(pathfinder, walking, pairs, queries);
+			runReachable(pathfinder, walking, pairs, queries/10);
+			long[] reachable = runReachable(pathfinder, walking, pairs, queries);
+
+			System.out.println(size + " x " + size + ":");
+			report("  A*", paths, queries);
+			report("  Dijkstra " + (int)BUDGET, reachable, queries);
+		}
+	}
+
+	static HexMap randomMap(int size, Random random){
+		HexMap map = HexMap.rectangle(size, size);
+		for (int i = 0; i < map.size(); i++){
+			float roll = random.nextFloat();
+			map.setTerrain(i, roll < 0.15f ? WATER : roll < 0.35f ? FOREST : GRASS);
+		}
+		return map;
+	}
+
+	/** Start and goal pairs on used, dry cells. **/
+	static int[] randomPairs(HexMap map, int count, Random random){
+		int[] pairs = new int[count*2];
+		for (int i = 0; i < pairs.length; i++){
+			int cell;
+			do {
+				cell = random.nextInt(map.size());
+			} while (!map.isUsed(cell) || map.getTerrain(cell) == WATER);
+			pairs[i] = cell;
+		}
+		return pairs;
+	}
+
+	static void verify(HexMap map, HexPathfinder pathfinder, MoveCosts costs, int[] pairs, int count){
+		IntArray path = new IntArray(), all = new IntArray();
+		for (int i = 0; i < count; i++){
+			int start = pairs[i*2], goal = pairs[i*2 + 1];
+			pathfinder.reachable(start, costs, Float.MAX_VALUE, all);
+			float expected = pathfinder.getCost(goal);
+
+			boolean found = pathfinder.findPath(start, goal, costs, path);
+			float cost = 0;
+			for (int n = 1; n < path.size; n++)
+				cost += costs.get(map.getTerrain(path.get(n)));
+
+			if (found != (expected != MoveCosts.BLOCKED) || (found && Math.abs(cost - expected) > 0.001f))
+				throw new IllegalStateException("A* cost " + cost + " but Dijkstra says " + expected);
+		}
+	}
+
+	/** Returns allocated bytes, nanos and cells expanded. **/
+	static long[] runPaths(HexPathfinder pathfinder, MoveCosts costs, int[] pairs, int count){
+		IntArray path = new IntArray(1024);
+		long[] result = begin();
+		for (int i = 0; i < count; i++){
+			pathfinder.findPath(pairs[i*2], pairs[i*2 + 1], costs, path);
+			result[2] += pathfinder.getExpanded();
+		}
+		return end(result);
+	}
+
+	static long[] runReachable(HexPathfinder pathfinder, MoveCosts costs, int[] pairs, int count){
+		IntArray cells = new IntArray(4096);
+		long[] result = begin();
+		for (int i = 0; i < count; i++){
+			pathfinder.reachable(pairs[i], costs, BUDGET, cells);
+			result[2] += pathfinder.getExpanded();
+		}
+		return end(result);
+	}
+
+	static long[] begin(){
+		return new long[] {BenchUtils.allocated(), System.nanoTime(), 0};
+	}
+
+	static long[] end(long[] result){
+		result[0] = BenchUtils.allocated() - result[0];
+		result[1] = System.nanoTime() - result[1];
+		return result;
+	}
+
+	static void report(String name, long[] result, int count){
+		System.out.println(name + ": " + (long)(count/(result[1]/1e9)) + " queries/s, " + result[1]/count/1000 + " us, "
+				+ result[2]/count + " cells expanded, " + result[0]/count + " bytes/query");
+	}
+}
@@ -0,0 +1,135 @@
+package com.johnathongoss.testing;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.OrthographicCamera;
+import com.badlogic.gdx.utils.GdxNativesLoader;
+import com.johnathongoss.libgdxtests.hex.HexChunkFile;
+import com.johnathongoss.libgdxtests.hex.HexLayout;
+import com.johnathongoss.libgdxtests.hex.HexMap;
+import com.johnathongoss.libgdxtests.hex.HexWorld;
+
+/**
+ * Streams a HexWorld around a camera panning across it, toggling the hex in
+ * the middle of the view every frame. Reports how long making and opening
+ * the map took next to a small one, the time per frame, chunk traffic and
+ * heap, then reopens the file to check every toggle was written back. The
+ * map's shape, and picking hexes by their centres, are checked against
+ * HexMap.rectangle on a small map first.
+ *
+ * Arguments: [hexes per side] [frames] [budget in MB] [directory]
+ */
+public class HexWorldBench {
+
+	static final int CHUNK = 32, MARGIN = 1;
+	static final float PAN = 150; // world units per frame
+
+	public static void main(String[] args) throws IOException {
+		GdxNativesLoader.load();
+		int size = args.length > 0 ? Integer.parseInt(args[0]) : 50000;
+		int frames = args.length > 1 ? Integer.parseInt(args[1]) : 3000;
+		long budget = (args.length > 2 ? Long.parseLong(args[2]) : 8) << 20;
+		File directory = new File(args.length > 3 ? args[3] : System.getProperty("java.io.tmpdir"));
+		FileHandle shape = new FileHandle(new File(directory, "hexworld-shape.bin"));
+		FileHandle small = new FileHandle(new File(directory, "hexworld-1000.bin"));
+		FileHandle big = new FileHandle(new File(directory, "hexworld-" + size + ".bin"));
+		small.delete();
+		big.delete();
+
+		// Also warms up
+		checkShape(shape, 301, 217);
+		shape.delete();
+
+		long start = System.nanoTime();
+		HexChunkFile.create(small, 1000, 1000, CHUNK).dispose();
+		long smallCreate = System.nanoTime() - start;
+
+		start = System.nanoTime();
+		HexChunkFile.create(big, size, size, CHUNK).dispose();
+		long bigCreate = System.nanoTime() - start;
+
+		start = System.nanoTime();
+		HexChunkFile file = HexChunkFile.open(big);
+		long bigOpen = System.nanoTime() - start;
+
+		System.out.println("Create 1000 x 1000: " + smallCreate/1000 + " us, " + size + " x " + size + ": " + bigCreate/1000 + " us, open " + bigOpen/1000 + " us");
+		System.out.println("File " + file.getLength()/(1 << 20) + " MB, " + file.getChunkCount() + " chunks of " + CHUNK + " x " + CHUNK);
+
+		HexWorld world = new HexWorld(file, budget);
+		HexLayout layout = HexLayout.hexGridTest();
+		OrthographicCamera cam = new OrthographicCamera(1280, 720);
+		Map<Long, Boolean> toggled = new HashMap<Long, Boolean>();
+
+		// Diagonally up and right, turning back along a lower line at the edge, so chunks are revisited
+		cam.position.set(layout.getCenterX(size/2, size/4), layout.getCenterY(size/2, size/4), 0);
+		float dx = PAN, dy = PAN/2;
+		long loadTime = 0;
+		for (int frame = 0; frame < frames; frame++){
+			if (frame == frames/2){
+				dx = -dx;
+				cam.position.y -= 2000;
+			}
+			cam.position.add(dx, dy, 0);
+
+			long before = System.nanoTime();
+			world.load(layout, cam, MARGIN);
+			loadTime += System.nanoTime() - before;
+
+			int q = Math.round(layout.toQ(cam.position.x, cam.position.y)), r = Math.round(layout.toR(cam.position.x, cam.position.y));
+			if (world.isUsed(q, r)){
+				world.toggleFlag(q, r, HexMap.SELECTED);
+				toggled.put(world.key(q, r), world.hasFlag(q, r, HexMap.SELECTED));
+			}
+		}
+
+		Runtime runtime = Runtime.getRuntime();
+		System.gc();
+		System.out.println(frames + " frames: " + loadTime/frames/1000 + " us loading per frame, " + world.getLoads() + " loads, "
+				+ world.getEvictions() + " evictions, " + world.getWrites() + " writes");
+		System.out.println("Resident " + world.getResident() + " chunks (" + world.getResidentBytes()/1024 + " KB), peak " + world.getPeakResident()
+				+ ", budget " + world.getMaxResident() + ", heap " + (runtime.totalMemory() - runtime.freeMemory())/(1 << 20) + " MB");
+
+		start = System.nanoTime();
+		world.dispose();
+		System.out.println("Dispose " + (System.nanoTime() - start)/1000 + " us");
+
+		HexWorld reopened = new HexWorld(HexChunkFile.open(big), budget);
+		int wrong = 0;
+		for (Map.Entry<Long, Boolean> entry : toggled.entrySet()){
+			int q = reopened.getQ(entry.getKey()), r = reopened.getR(entry.getKey());
+			if (reopened.hasFlag(q, r, HexMap.SELECTED) != entry.getValue())
+				wrong++;
+		}
+		reopened.dispose();
+		System.out.println("Reopened: " + wrong + " of " + toggled.size() + " toggled hexes wrong");
+
+		small.delete();
+		big.delete();
+	}
+
+	/** Blank chunks have to use the same hexes as HexMap.rectangle, and pick the same. **/
+	static void checkShape(FileHandle handle, int columns, int rows) throws IOException {
+		HexMap map = HexMap.rectangle(columns, rows);
+		HexWorld world = new HexWorld(HexChunkFile.create(handle, columns, rows, CHUNK), 1 << 20);
+		if (world.width != map.width || world.height != map.height)
+			throw new IllegalStateException("World is " + world.width + " x " + world.height + ", map " + map.width + " x " + map.height);
+
+		HexLayout layout = HexLayout.hexGridTest();
+		for (int r = 0; r < map.height; r++)
+			for (int q = 0; q < map.width; q++){
+				if (world.isUsed(q, r) != map.isUsed(q, r))
+					throw new IllegalStateException("[" + q + ", " + r + "] used " + world.isUsed(q, r) + ", map says " + map.isUsed(q, r));
+
+				float x = layout.getCenterX(q, r), y = layout.getCenterY(q, r);
+				long picked = layout.pick(world, x, y);
+				int expected = layout.pick(map, x, y);
+				if (picked != (expected == -1 ? -1 : world.key(map.getQ(expected), map.getR(expected))))
+					throw new IllegalStateException("[" + q + ", " + r + "] picked " + picked + ", map picks " + expected);
+			}
+		world.dispose();
+	}
+}
@@ -0,0 +1,47 @@
+package com.johnathongoss.testing;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.Array;
+import com.johnathongoss.libgdxtests.particles.ParticleSimulation;
+import com.johnathongoss.libgdxtests.particles.ParticleSimulation.Engine;
+import com.johnathongoss.libgdxtests.particles.ParticleSimulation.Stats;
+
+/**
+ * Simulates every fx/*.p definition without a display and checks the optimised
+ * engines against the reference ParticleEffect.
+ *
+ * Arguments: [fx dir] [seconds] [instances] [seed]
+ * Exits with 1 if any engine disagrees with the reference.
+ */
+public class ParticleHarness {
+
+	public static void main(String[] args) {
+		FileHandle fx = new FileHandle(args.length > 0 ? args[0] : "../Testing-android/assets/fx");
+		float seconds = args.length > 1 ? Float.parseFloat(args[1]) : 10;
+		int instances = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+		long seed = args.length > 3 ? Long.parseLong(args[3]) : 1337;
+
+		Array<Engine> engines = new Array<Engine>();
+		engines.add(ParticleSimulation.MERGED);
+
+		Array<String> mismatches = new Array<String>();
+		FileHandle[] files = fx.list(".p");
+		if (files.length == 0){
+			System.err.println("No .p files in " + fx.file().getAbsolutePath());
+			System.exit(1);
+		}
+
+		for (FileHandle file : files){
+			Array<Stats> results = ParticleSimulation.compare(ParticleSimulation.loadDefinition(file, fx),
+					file.nameWithoutExtension(), engines, instances, seconds, seed, mismatches);
+
+			for (Stats stats : results)
+				System.out.println(stats);
+		}
+
+		for (String mismatch : mismatches)
+			System.err.println("MISMATCH " + mismatch);
+
+		System.exit(mismatches.size == 0 ? 0 : 1);
+	}
+}
@@ -4,6 +4,7 @@ import com.badlogic.gdx.Game;
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.graphics.OrthographicCamera;
 import com.badlogic.gdx.math.MathUtils;
+import com.johnathongoss.libgdxtests.physics.PhysicsWorld;
 import com.johnathongoss.libgdxtests.screens.Loading;
 
 public class MyGame extends Game{
@@ -12,6 +13,9 @@ public class MyGame extends Game{
 
 	private IActivityRequestHandler myRequestHandler;
 
+	/** Shared by every screen that uses Box2D, created on first use **/
+	private PhysicsWorld physics;
+
 	public MyGame(IActivityRequestHandler handler) {
 		myRequestHandler = handler;
 	}
@@ -31,6 +35,20 @@ public class MyGame extends Game{
 		setScreen(new Loading(this));
 	}
 
+	public PhysicsWorld getPhysics(){
+		if (physics == null)
+			physics = new PhysicsWorld();
+		return physics;
+	}
+
+	@Override
+	public void dispose() {
+		super.dispose();
+		if (physics != null)
+			physics.dispose();
+		ParticleCache.disposeFlipbooks();
+	}
+
 	public float getWidth(){
 		return Gdx.app.getGraphics().getWidth();		
 	}
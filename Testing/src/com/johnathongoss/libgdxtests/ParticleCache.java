@@ -4,11 +4,16 @@ import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.graphics.g2d.ParticleEffect;
 import com.badlogic.gdx.graphics.g2d.ParticleEffectPool;
 import com.badlogic.gdx.graphics.g2d.ParticleEffectPool.PooledEffect;
+import com.badlogic.gdx.utils.Pool;
+import com.johnathongoss.libgdxtests.particles.FlipbookBaker;
+import com.johnathongoss.libgdxtests.particles.FlipbookEffect;
+import com.johnathongoss.libgdxtests.particles.ParticleFlipbook;
 
 public class ParticleCache {
 
 	public static final int FIRE = 0, SNOW = 1, BLOOD = 2, BUBBLES = 3, EXPL_FIRE = 4,
 			FIREWORK_LARGE = 5;
+	public static final int TYPES = 6;
 
 	private static ParticleEffectPool 
 	pool_fire, 
@@ -26,6 +31,20 @@ public class ParticleCache {
 	fx_expl_fire,
 	fx_firework_large;
 
+	private static final String[] files = {"fire", "snow", "blood", "bubbles", "explosion_fire", "firework_large"};
+
+	// Baked lazily on first use, see getFlipbookEffect
+	private static final ParticleFlipbook[] flipbooks = new ParticleFlipbook[TYPES];
+	/** Types that could not be baked, so they are not tried again on every tap **/
+	private static final boolean[] failed = new boolean[TYPES];
+
+	private static final Pool<FlipbookEffect> flipbookPool = new Pool<FlipbookEffect>() {
+		@Override
+		protected FlipbookEffect newObject() {
+			return new FlipbookEffect();
+		}
+	};
+
 	public static void Load(){
 
 		fx_fire = new ParticleEffect();
@@ -86,4 +105,61 @@ public class ParticleCache {
 		effect.start();
 		return effect;
 	}
+
+	public static ParticleEffect getTemplate(int type){
+
+		switch (type){
+		case FIRE: return fx_fire;
+		case SNOW: return fx_snow;
+		case BLOOD: return fx_blood;
+		case BUBBLES: return fx_bubbles;
+		case EXPL_FIRE: return fx_expl_fire;
+		case FIREWORK_LARGE: return fx_firework_large;
+		}
+		return null;
+	}
+
+	/**
+	 * One-shot version of an effect played back from a baked sheet. The first call
+	 * for a type bakes it (or loads the sheet baked on a previous run).
+	 * Returns null if the effect could not be baked, then straight away until
+	 * disposeFlipbooks.
+	 */
+	public static FlipbookEffect getFlipbookEffect(int type){
+
+		if (flipbooks[type] == null){
+			if (failed[type])
+				return null;
+
+			flipbooks[type] = FlipbookBaker.load(Gdx.files.internal("fx/" + files[type] + ".p"), getTemplate(type), Gdx.files.internal("fx"));
+			if (flipbooks[type] == null){
+				failed[type] = true;
+				return null;
+			}
+		}
+
+		FlipbookEffect flipbook = flipbookPool.obtain();
+		flipbook.start(flipbooks[type], type);
+		return flipbook;
+	}
+
+	public static void free(FlipbookEffect flipbook){
+		flipbookPool.free(flipbook);
+	}
+
+	/**
+	 * Frees the baked sheets' textures. Call once nothing is playing them, eg. when
+	 * the screen using them goes; the next getFlipbookEffect loads them again
+	 * (from the saved sheets, so without baking), and tries again the types
+	 * that failed.
+	 */
+	public static void disposeFlipbooks(){
+		for (int type = 0; type < flipbooks.length; type++){
+			failed[type] = false;
+			if (flipbooks[type] != null){
+				flipbooks[type].dispose();
+				flipbooks[type] = null;
+			}
+		}
+	}
 }
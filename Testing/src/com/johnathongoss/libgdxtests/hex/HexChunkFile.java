@@ -0,0 +1,233 @@
+package com.johnathongoss.libgdxtests.hex;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+
+/**
+ * A hex map on disk in fixed size chunks, read and written through memory
+ * mapped buffers. See {@link HexWorld} for streaming it in around a camera.
+ *
+ * The file is a 32 byte header (magic, version, columns, rows, chunk size)
+ * followed by one record per chunk of chunkSize x chunkSize cells in q, r,
+ * row by row like HexMap. A record is a state int and padding, then the
+ * cells' terrain bytes, flag bytes, used bits and int values. Records are at
+ * fixed offsets, so finding one is arithmetic, and the file is made at full
+ * length without writing it: a record still all zeroes was never stored and
+ * reads as the default, blank cells in the shape of HexMap.rectangle. On
+ * file systems with sparse files a new map costs nothing however big it is.
+ *
+ * The file is mapped a segment of up to 1 GB at a time, each segment the
+ * first time a record in it is touched, so opening doesn't depend on the
+ * size either.
+ */
+public class HexChunkFile implements Disposable {
+
+	static final int MAGIC = 0x4845584d; // HEXM
+	static final int VERSION = 1;
+	static final int HEADER = 32;
+	static final int STORED = 1;
+	static final int SEGMENT = 1 << 30;
+
+	public final int columns, rows;
+	/** The parallelogram holding the map, as in HexMap.rectangle. **/
+	public final int width, height;
+	public final int chunkSize, chunksQ, chunksR;
+	/** Cells in a chunk, and bytes in a record. **/
+	final int cells, recordSize;
+	private final int terrainAt, flagsAt, usedAt, valuesAt;
+
+	private final RandomAccessFile file;
+	private final FileChannel channel;
+	private final MappedByteBuffer[] segments;
+	private final int segmentRecords;
+
+	/** Makes an empty map of columns x rows hexes, chunkSize a multiple of 8. Overwrites the file. **/
+	public static HexChunkFile create(FileHandle handle, int columns, int rows, int chunkSize) throws IOException {
+		if (chunkSize < 8 || chunkSize > 256 || chunkSize % 8 != 0)
+			throw new IllegalArgumentException("Chunk size must be a multiple of 8 up to 256: " + chunkSize);
+		if (columns <= 0 || rows <= 0)
+			throw new IllegalArgumentException("Bad map size: " + columns + " x " + rows);
+
+		handle.parent().mkdirs();
+		RandomAccessFile file = new RandomAccessFile(handle.file(), "rw");
+		try {
+			file.setLength(0);
+			file.writeInt(MAGIC);
+			file.writeInt(VERSION);
+			file.writeInt(columns);
+			file.writeInt(rows);
+			file.writeInt(chunkSize);
+		} catch (IOException e) {
+			file.close();
+			throw e;
+		}
+		return new HexChunkFile(file, handle, columns, rows, chunkSize);
+	}
+
+	public static HexChunkFile open(FileHandle handle) throws IOException {
+		RandomAccessFile file = new RandomAccessFile(handle.file(), "rw");
+		try {
+			if (file.length() < HEADER || file.readInt() != MAGIC)
+				throw new IOException("Not a hex map: " + handle.path());
+			int version = file.readInt();
+			if (version != VERSION)
+				throw new IOException("Hex map " + handle.path() + " is version " + version + ", not " + VERSION);
+
+			int columns = file.readInt(), rows = file.readInt(), chunkSize = file.readInt();
+			return new HexChunkFile(file, handle, columns, rows, chunkSize);
+		} catch (IOException e) {
+			file.close();
+			throw e;
+		} catch (RuntimeException e) {
+			file.close();
+			throw e;
+		}
+	}
+
+	private HexChunkFile(RandomAccessFile file, FileHandle handle, int columns, int rows, int chunkSize) throws IOException {
+		this.file = file;
+		this.columns = columns;
+		this.rows = rows;
+		this.chunkSize = chunkSize;
+		width = columns + rows/2;
+		height = rows;
+		chunksQ = (width + chunkSize - 1)/chunkSize;
+		chunksR = (height + chunkSize - 1)/chunkSize;
+		if ((long)chunksQ*chunksR > Integer.MAX_VALUE)
+			throw new IOException("Too many chunks in " + handle.path() + ": " + chunksQ + " x " + chunksR);
+
+		cells = chunkSize*chunkSize;
+		terrainAt = 8;
+		flagsAt = terrainAt + cells;
+		usedAt = flagsAt + cells;
+		valuesAt = usedAt + cells/8;
+		recordSize = valuesAt + cells*4;
+
+		long length = HEADER + (long)getChunkCount()*recordSize;
+		if (file.length() < length)
+			file.setLength(length);
+
+		channel = file.getChannel();
+		segmentRecords = SEGMENT/recordSize;
+		segments = new MappedByteBuffer[(getChunkCount() + segmentRecords - 1)/segmentRecords];
+	}
+
+	public int getChunkCount(){
+		return chunksQ*chunksR;
+	}
+
+	public int getChunk(int q, int r){
+		return (r/chunkSize)*chunksQ + q/chunkSize;
+	}
+
+	private MappedByteBuffer segment(int chunk){
+		int s = chunk/segmentRecords;
+		if (segments[s] == null){
+			long start = HEADER + (long)s*segmentRecords*recordSize;
+			int records = Math.min(segmentRecords, getChunkCount() - s*segmentRecords);
+			try {
+				segments[s] = channel.map(FileChannel.MapMode.READ_WRITE, start, (long)records*recordSize);
+			} catch (IOException e) {
+				throw new GdxRuntimeException("Couldn't map hex map segment " + s, e);
+			}
+		}
+		return segments[s];
+	}
+
+	private int offset(int chunk){
+		return (chunk % segmentRecords)*recordSize;
+	}
+
+	/**
+	 * Reads a chunk into the arrays, cells in chunk rows of chunkSize, used
+	 * holding a bit per cell. Returns false for a chunk never written, which
+	 * is filled with the default cells instead.
+	 */
+	public boolean read(int chunk, byte[] terrain, byte[] flags, long[] used, int[] values){
+		MappedByteBuffer buffer = segment(chunk);
+		int offset = offset(chunk);
+
+		if (buffer.getInt(offset) != STORED){
+			blank(chunk, terrain, flags, used, values);
+			return false;
+		}
+
+		buffer.position(offset + terrainAt);
+		buffer.get(terrain, 0, cells);
+		buffer.get(flags, 0, cells);
+		for (int i = 0; i < cells/64; i++)
+			used[i] = buffer.getLong(offset + usedAt + i*8);
+		for (int i = 0; i < cells; i++)
+			values[i] = buffer.getInt(offset + valuesAt + i*4);
+		return true;
+	}
+
+	public void write(int chunk, byte[] terrain, byte[] flags, long[] used, int[] values){
+		MappedByteBuffer buffer = segment(chunk);
+		int offset = offset(chunk);
+
+		buffer.position(offset + terrainAt);
+		buffer.put(terrain, 0, cells);
+		buffer.put(flags, 0, cells);
+		for (int i = 0; i < cells/64; i++)
+			buffer.putLong(offset + usedAt + i*8, used[i]);
+		for (int i = 0; i < cells; i++)
+			buffer.putInt(offset + valuesAt + i*4, values[i]);
+		buffer.putInt(offset, STORED);
+	}
+
+	/** Default cells: nothing set, used where HexMap.rectangle would use them. **/
+	private void blank(int chunk, byte[] terrain, byte[] flags, long[] used, int[] values){
+		for (int i = 0; i < cells; i++){
+			terrain[i] = 0;
+			flags[i] = 0;
+			values[i] = 0;
+		}
+		for (int i = 0; i < cells/64; i++)
+			used[i] = 0;
+
+		int q0 = (chunk % chunksQ)*chunkSize, r0 = (chunk / chunksQ)*chunkSize;
+		for (int y = 0; y < chunkSize && r0 + y < height; y++){
+			int r = r0 + y;
+			int first = (rows - r)/2, end = first + columns - ((rows - 1 - r) & 1);
+			for (int x = Math.max(0, first - q0); x < chunkSize && q0 + x < end; x++){
+				int i = y*chunkSize + x;
+				used[i >>> 6] |= 1L << i;
+			}
+		}
+	}
+
+	/** Makes sure everything written so far is on disk. **/
+	public void flush(){
+		for (int s = 0; s < segments.length; s++)
+			if (segments[s] != null)
+				segments[s].force();
+	}
+
+	/** Bytes the file takes if every chunk is stored. **/
+	public long getLength(){
+		return HEADER + (long)getChunkCount()*recordSize;
+	}
+
+	/**
+	 * Closes the file. The mappings themselves go when they are garbage
+	 * collected, there is no way to unmap them sooner.
+	 */
+	@Override
+	public void dispose() {
+		flush();
+		for (int s = 0; s < segments.length; s++)
+			segments[s] = null;
+		try {
+			file.close();
+		} catch (IOException e) {
+			throw new GdxRuntimeException("Couldn't close hex map", e);
+		}
+	}
+}
@@ -0,0 +1,172 @@
+package com.johnathongoss.libgdxtests.hex;
+
+import com.badlogic.gdx.graphics.OrthographicCamera;
+import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.graphics.g2d.BitmapFont;
+import com.badlogic.gdx.graphics.g2d.BitmapFont.HAlignment;
+import com.badlogic.gdx.graphics.g2d.BitmapFontCache;
+import com.badlogic.gdx.utils.StringBuilder;
+
+/**
+ * "[q, r]" labels over every hex, for debugging, laid out once into a
+ * BitmapFontCache per chunk of {@link HexRenderer#CHUNK} x CHUNK cells
+ * instead of building and laying out a string per hex per frame.
+ *
+ * Works like HexRenderer: a chunk is laid out when it first comes into view
+ * and again only after one of its cells changes, chunks out of view are
+ * skipped, and a fixed number of slots go to the chunks drawn most recently.
+ */
+public class HexLabels implements HexMap.Listener {
+
+	static final int CHUNK = HexRenderer.CHUNK;
+
+	private final HexMap map;
+	private final HexLayout layout;
+	private final float labelY;
+	private final StringBuilder text = new StringBuilder(16);
+
+	final int chunksQ, chunksR;
+	private final int[] slotOf; // per chunk, -1 when not laid out
+	private final boolean[] dirty;
+	private final BitmapFontCache[] caches;
+	private final int[] chunkOf, lastDrawn; // per slot
+	private int frame;
+	private int drawn, rebuilt, skipped;
+
+	/** labelY is the label's top above the bottom of the hex image. **/
+	public HexLabels(HexMap map, HexLayout layout, BitmapFont font, float labelY, int slots) {
+		this.map = map;
+		this.layout = layout;
+		this.labelY = labelY;
+
+		chunksQ = (map.width + CHUNK - 1)/CHUNK;
+		chunksR = (map.height + CHUNK - 1)/CHUNK;
+		slotOf = new int[chunksQ*chunksR];
+		dirty = new boolean[chunksQ*chunksR];
+		for (int i = 0; i < slotOf.length; i++)
+			slotOf[i] = -1;
+
+		caches = new BitmapFontCache[slots];
+		chunkOf = new int[slots];
+		lastDrawn = new int[slots];
+		for (int slot = 0; slot < slots; slot++){
+			caches[slot] = new BitmapFontCache(font, font.usesIntegerPositions());
+			caches[slot].setColor(font.getColor());
+			chunkOf[slot] = -1;
+		}
+
+		map.addListener(this);
+	}
+
+	@Override
+	public void cellChanged(HexMap map, int index) {
+		if (index == -1){
+			for (int i = 0; i < dirty.length; i++)
+				dirty[i] = true;
+			return;
+		}
+
+		dirty[(map.getR(index)/CHUNK)*chunksQ + map.getQ(index)/CHUNK] = true;
+	}
+
+	/** Draws the labels cam can see, batch already begun with cam's projection. **/
+	public void draw(Batch batch, OrthographicCamera cam){
+		frame++;
+		drawn = rebuilt = skipped = 0;
+
+		float halfWidth = cam.viewportWidth*cam.zoom/2, halfHeight = cam.viewportHeight*cam.zoom/2;
+		float left = cam.position.x - halfWidth, right = cam.position.x + halfWidth;
+		float bottom = cam.position.y - halfHeight, top = cam.position.y + halfHeight;
+
+		int firstRow = Math.max(0, (int)Math.floor((bottom - layout.imageHeight/2)/layout.rowHeight) - 1);
+		int lastRow = Math.min(map.height - 1, (int)Math.ceil((top + layout.imageHeight/2)/layout.rowHeight) + 1);
+		if (firstRow > lastRow)
+			return;
+
+		for (int chunkR = firstRow/CHUNK; chunkR <= lastRow/CHUNK; chunkR++){
+			for (int chunkQ = 0; chunkQ < chunksQ; chunkQ++){
+				// Bounding box across, as in HexRenderer
+				int q0 = chunkQ*CHUNK, r0 = chunkR*CHUNK;
+				int q1 = Math.min(q0 + CHUNK, map.width) - 1, r1 = Math.min(r0 + CHUNK, map.height) - 1;
+				if (layout.getCenterX(q1, r1) + layout.imageWidth/2 < left || layout.getCenterX(q0, r0) - layout.imageWidth/2 > right)
+					continue;
+
+				int chunk = chunkR*chunksQ + chunkQ;
+				int slot = slotOf[chunk];
+				if (slot == -1 || dirty[chunk]){
+					slot = layOut(chunk, slot);
+					if (slot == -1)
+						continue;
+				}
+
+				lastDrawn[slot] = frame;
+				caches[slot].draw(batch);
+				drawn++;
+			}
+		}
+	}
+
+	private int layOut(int chunk, int slot){
+		if (slot == -1){
+			slot = takeSlot();
+			if (slot == -1){
+				skipped++;
+				return -1;
+			}
+			slotOf[chunk] = slot;
+			chunkOf[slot] = chunk;
+		}
+		dirty[chunk] = false;
+
+		BitmapFontCache cache = caches[slot];
+		cache.clear();
+		int q0 = (chunk % chunksQ)*CHUNK, r0 = (chunk / chunksQ)*CHUNK;
+		int q1 = Math.min(q0 + CHUNK, map.width), r1 = Math.min(r0 + CHUNK, map.height);
+		for (int r = r0; r < r1; r++){
+			for (int q = q0; q < q1; q++){
+				if (!map.isUsed(map.index(q, r)))
+					continue;
+
+				text.setLength(0);
+				text.append('[').append(q).append(", ").append(r).append(']');
+				cache.addMultiLineText(text, layout.getX(q, r), layout.getY(q, r) + labelY, layout.imageWidth, HAlignment.CENTER);
+			}
+		}
+		rebuilt++;
+		return slot;
+	}
+
+	/** A slot never used, or the one drawn longest ago that wasn't drawn this frame. **/
+	private int takeSlot(){
+		int oldest = -1;
+		for (int slot = 0; slot < caches.length; slot++){
+			if (chunkOf[slot] == -1)
+				return slot;
+			if (lastDrawn[slot] != frame && (oldest == -1 || lastDrawn[slot] < lastDrawn[oldest]))
+				oldest = slot;
+		}
+
+		if (oldest != -1)
+			slotOf[chunkOf[oldest]] = -1;
+		return oldest;
+	}
+
+	/** Chunks drawn in the last draw. **/
+	public int getDrawn(){
+		return drawn;
+	}
+
+	/** Chunks laid out again in the last draw. **/
+	public int getRebuilt(){
+		return rebuilt;
+	}
+
+	/** Visible chunks left out in the last draw for lack of slots. **/
+	public int getSkipped(){
+		return skipped;
+	}
+
+	public void dispose(){
+		map.removeListener(this);
+	}
+}
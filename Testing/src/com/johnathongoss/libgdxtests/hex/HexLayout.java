@@ -0,0 +1,75 @@
+package com.johnathongoss.libgdxtests.hex;
+
+/**
+ * Where hexes go on screen, and which hex is at a point.
+ *
+ * Pointy topped hexes, the centre of [0, 0] at 0, 0. Rows are size*3/2
+ * apart and columns size*stretch*sqrt(3), which is HexGridTest's layout
+ * (size 48, stretch 1.16 so the 96 pixel wide image tiles). pick() inverts
+ * that and cube rounds, so finding the hex under a point costs the same on
+ * any size of map.
+ */
+public class HexLayout {
+
+	public static final float SQRT3 = (float)Math.sqrt(3);
+
+	/** Centre to corner, and the size of the hex image. **/
+	public final float size, imageWidth, imageHeight;
+	public final float columnWidth, rowHeight;
+	private final int[] rounded = new int[2];
+
+	public HexLayout(float size, float stretch, float imageWidth, float imageHeight) {
+		this.size = size;
+		this.imageWidth = imageWidth;
+		this.imageHeight = imageHeight;
+		columnWidth = size*stretch*SQRT3;
+		rowHeight = size*3/2;
+	}
+
+	/** HexGridTest's 96 x 96 hex. **/
+	public static HexLayout hexGridTest(){
+		return new HexLayout(48, 1.16f, 96, 96);
+	}
+
+	public float getCenterX(int q, int r){
+		return columnWidth*(q + r/2f);
+	}
+
+	public float getCenterY(int q, int r){
+		return rowHeight*r;
+	}
+
+	/** Bottom left corner of the image. **/
+	public float getX(int q, int r){
+		return getCenterX(q, r) - imageWidth/2;
+	}
+
+	public float getY(int q, int r){
+		return getCenterY(q, r) - imageHeight/2;
+	}
+
+	/** Fractional axial q of a point, see HexMap.round. **/
+	public float toQ(float x, float y){
+		return x/columnWidth - toR(x, y)/2;
+	}
+
+	public float toR(float x, float y){
+		return y/rowHeight;
+	}
+
+	/** The used cell at x, y in world units, or -1. **/
+	public int pick(HexMap map, float x, float y){
+		int cell = map.round(toQ(x, y), toR(x, y));
+		return cell != -1 && map.isUsed(cell) ? cell : -1;
+	}
+
+	/**
+	 * The used cell at x, y as a HexWorld key, or -1. Loads the chunk under
+	 * the point if it isn't resident, which it is for a point in view.
+	 */
+	public long pick(HexWorld world, float x, float y){
+		HexMap.round(toQ(x, y), toR(x, y), rounded);
+		int q = rounded[0], r = rounded[1];
+		return world.isUsed(q, r) ? world.key(q, r) : -1;
+	}
+}
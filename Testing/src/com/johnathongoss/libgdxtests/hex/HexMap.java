@@ -0,0 +1,305 @@
+package com.johnathongoss.libgdxtests.hex;
+
+import com.badlogic.gdx.utils.Array;
+
+/**
+ * Hex map stored in flat arrays, with no object per cell.
+ *
+ * Cells are addressed by axial coordinates q, r in a width x height
+ * parallelogram, index = r*width + q. Each cell has a terrain byte, a byte of
+ * flags (SELECTED and whatever else a game wants) and an int value, eg. a unit
+ * or owner id. Cells outside the shape of the map are switched off in a
+ * bitset mask rather than removed, see rectangle().
+ *
+ * Every change bumps getVersion(), so anything derived from the map can tell
+ * when it is out of date, and is passed to the listeners with the cell.
+ *
+ * Neighbours are found without bounds checks: each cell keeps a byte with a
+ * bit per direction whose neighbour is in the map and used, and the
+ * neighbour in direction d is index + getOffset(d). Tight loops can walk
+ * them without a callback:
+ *
+ * for (int links = map.getLinks(i); links != 0; links &= links - 1){
+ *     int n = i + map.getOffset(Integer.numberOfTrailingZeros(links));
+ * }
+ */
+public class HexMap {
+
+	public static final byte SELECTED = 1;
+
+	/** Directions, the order neighbour links and offsets use. **/
+	public static final int TOP_RIGHT = 0, RIGHT = 1, BOTTOM_RIGHT = 2, BOTTOM_LEFT = 3, LEFT = 4, TOP_LEFT = 5;
+	public static final int[] DIRECTION_Q = {0, +1, +1, 0, -1, -1};
+	public static final int[] DIRECTION_R = {+1, 0, -1, -1, 0, +1};
+
+	public interface NeighborVisitor {
+		public void visit(int index, int neighbor, int direction);
+	}
+
+	/** Told about every change, eg. to mark what was built from the cell as dirty. **/
+	public interface Listener {
+		/** index is -1 when any cell may have changed. **/
+		public void cellChanged(HexMap map, int index);
+	}
+
+	public final int width, height;
+
+	final byte[] terrain;
+	final byte[] flags;
+	final int[] values;
+	final long[] mask;
+	final byte[] links;
+	private final int[] offsets = new int[6];
+	private final int[] rounded = new int[2];
+	private final Array<Listener> listeners = new Array<Listener>(false, 4);
+	private int version;
+
+	/** Every cell in use. **/
+	public HexMap(int width, int height) {
+		if (width <= 0 || height <= 0 || (long)width*height > Integer.MAX_VALUE)
+			throw new IllegalArgumentException("Bad map size: " + width + " x " + height);
+
+		this.width = width;
+		this.height = height;
+
+		int cells = width*height;
+		terrain = new byte[cells];
+		flags = new byte[cells];
+		values = new int[cells];
+		mask = new long[(cells + 63) >>> 6];
+		links = new byte[cells];
+
+		for (int i = 0; i < cells >>> 6; i++)
+			mask[i] = -1L;
+		if ((cells & 63) != 0)
+			mask[mask.length - 1] = (1L << (cells & 63)) - 1;
+
+		for (int d = 0; d < 6; d++)
+			offsets[d] = DIRECTION_Q[d] + DIRECTION_R[d]*width;
+		linkAll();
+	}
+
+	/**
+	 * A map that looks rectangular on screen, columns hexes wide and rows high.
+	 * Pointy topped rows shift half a hex per row, so each row uses a
+	 * different range of q, and every other row is one hex shorter so the
+	 * sides line up. Same shape as the original 8 x 7 HexGridTest grid.
+	 */
+	public static HexMap rectangle(int columns, int rows){
+		HexMap map = new HexMap(columns + rows/2, rows);
+
+		for (int r = 0; r < rows; r++){
+			int first = (rows - r)/2;
+			int count = columns - ((rows - 1 - r) & 1);
+			for (int q = 0; q < map.width; q++)
+				if (q < first || q >= first + count)
+					map.mask[map.index(q, r) >>> 6] &= ~(1L << map.index(q, r));
+		}
+		map.linkAll();
+		return map;
+	}
+
+	public int size(){
+		return width*height;
+	}
+
+	/** Only meaningful when contains(q, r). **/
+	public int index(int q, int r){
+		return r*width + q;
+	}
+
+	public int getQ(int index){
+		return index % width;
+	}
+
+	public int getR(int index){
+		return index / width;
+	}
+
+	/** Inside the parallelogram, used or not. **/
+	public boolean contains(int q, int r){
+		return q >= 0 && r >= 0 && q < width && r < height;
+	}
+
+	public boolean isUsed(int index){
+		return (mask[index >>> 6] & (1L << index)) != 0;
+	}
+
+	/** In the map and in use, the check to do before touching q, r. **/
+	public boolean isUsed(int q, int r){
+		return contains(q, r) && isUsed(index(q, r));
+	}
+
+	public void setUsed(int index, boolean used){
+		if (used)
+			mask[index >>> 6] |= 1L << index;
+		else
+			mask[index >>> 6] &= ~(1L << index);
+
+		// Only the cells around it can link to it
+		int q = getQ(index), r = getR(index);
+		for (int d = 0; d < 6; d++)
+			if (contains(q + DIRECTION_Q[d], r + DIRECTION_R[d]))
+				link(index + offsets[d]);
+		changed(index);
+	}
+
+	private void linkAll(){
+		for (int i = 0; i < links.length; i++)
+			link(i);
+	}
+
+	private void link(int index){
+		int q = getQ(index), r = getR(index);
+		int bits = 0;
+		for (int d = 0; d < 6; d++)
+			if (isUsed(q + DIRECTION_Q[d], r + DIRECTION_R[d]))
+				bits |= 1 << d;
+		links[index] = (byte)bits;
+	}
+
+	/** One bit per direction whose neighbour is in the map and used. **/
+	public int getLinks(int index){
+		return links[index];
+	}
+
+	/** Index step to the neighbour in direction, only valid where its link bit is set. **/
+	public int getOffset(int direction){
+		return offsets[direction];
+	}
+
+	/** The used neighbour in direction, or -1. **/
+	public int getNeighbor(int index, int direction){
+		return (links[index] & (1 << direction)) != 0 ? index + offsets[direction] : -1;
+	}
+
+	/** Fills out (6 long at least) with the used neighbours and returns how many. **/
+	public int getNeighbors(int index, int[] out){
+		int count = 0;
+		int links = this.links[index];
+		for (int d = 0; d < 6; d++)
+			if ((links & (1 << d)) != 0)
+				out[count++] = index + offsets[d];
+		return count;
+	}
+
+	public void forEachNeighbor(int index, NeighborVisitor visitor){
+		int links = this.links[index];
+		for (int d = 0; d < 6; d++)
+			if ((links & (1 << d)) != 0)
+				visitor.visit(index, index + offsets[d], d);
+	}
+
+	/** Whether any neighbour is missing, ie. the cell is on the edge of the map or a hole. **/
+	public boolean isBorder(int index){
+		return links[index] != 0x3f;
+	}
+
+	public int getTerrain(int index){
+		return terrain[index];
+	}
+
+	public void setTerrain(int index, int type){
+		terrain[index] = (byte)type;
+		changed(index);
+	}
+
+	public boolean hasFlag(int index, int flag){
+		return (flags[index] & flag) != 0;
+	}
+
+	public void setFlag(int index, int flag, boolean on){
+		if (on)
+			flags[index] |= flag;
+		else
+			flags[index] &= ~flag;
+		changed(index);
+	}
+
+	public void toggleFlag(int index, int flag){
+		flags[index] ^= flag;
+		changed(index);
+	}
+
+	public int getValue(int index){
+		return values[index];
+	}
+
+	public void setValue(int index, int value){
+		values[index] = value;
+		changed(index);
+	}
+
+	/** Changes whenever anything in the map does. **/
+	public int getVersion(){
+		return version;
+	}
+
+	/** For bulk edits made straight to the arrays, tells listeners everything changed. **/
+	public void changed(){
+		changed(-1);
+	}
+
+	private void changed(int index){
+		version++;
+		for (int i = 0; i < listeners.size; i++)
+			listeners.get(i).cellChanged(this, index);
+	}
+
+	public void addListener(Listener listener){
+		listeners.add(listener);
+	}
+
+	public void removeListener(Listener listener){
+		listeners.removeValue(listener, true);
+	}
+
+	/** Cube coordinates, x = q, y = -q - r, z = r. **/
+	public static int cubeY(int q, int r){
+		return -q - r;
+	}
+
+	public int getCubeX(int index){
+		return getQ(index);
+	}
+
+	public int getCubeY(int index){
+		return cubeY(getQ(index), getR(index));
+	}
+
+	public int getCubeZ(int index){
+		return getR(index);
+	}
+
+	/** Steps between two cells, ignoring the mask. **/
+	public static int distance(int q1, int r1, int q2, int r2){
+		int dq = q1 - q2, dr = r1 - r2;
+		return (Math.abs(dq) + Math.abs(dr) + Math.abs(dq + dr))/2;
+	}
+
+	public int distance(int index1, int index2){
+		return distance(getQ(index1), getR(index1), getQ(index2), getR(index2));
+	}
+
+	/** Nearest cell to fractional axial coordinates, by cube rounding. -1 if it is outside the map. **/
+	public int round(float q, float r){
+		round(q, r, rounded);
+		return contains(rounded[0], rounded[1]) ? index(rounded[0], rounded[1]) : -1;
+	}
+
+	/** Cube rounds fractional axial coordinates, the nearest cell's q, r go in out. **/
+	public static void round(float q, float r, int[] out){
+		float y = -q - r;
+		int rq = Math.round(q), rr = Math.round(r), ry = Math.round(y);
+		float dq = Math.abs(rq - q), dr = Math.abs(rr - r), dy = Math.abs(ry - y);
+
+		// The coordinate that moved most is rebuilt from the other two
+		if (dq > dr && dq > dy)
+			rq = -rr - ry;
+		else if (dr > dy)
+			rr = -rq - ry;
+
+		out[0] = rq;
+		out[1] = rr;
+	}
+}
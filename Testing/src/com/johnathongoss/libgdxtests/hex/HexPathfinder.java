@@ -0,0 +1,156 @@
+package com.johnathongoss.libgdxtests.hex;
+
+import com.badlogic.gdx.utils.IntArray;
+
+/**
+ * A* and Dijkstra over a {@link HexMap}, priced by {@link MoveCosts}.
+ *
+ * All search state lives in arrays the size of the map, allocated once. Each
+ * search gets a new stamp instead of clearing them: a cell's cost and parent
+ * only count when its stamp is the current one. Nothing is allocated per
+ * query, the path or reachable cells go into the caller's IntArray.
+ *
+ * Not thread safe, use one pathfinder per thread.
+ */
+public class HexPathfinder {
+
+	private final HexMap map;
+	private final IndexedHeap open;
+	private final float[] costs;
+	private final int[] parents;
+	private final int[] seen, closed;
+	private int stamp, expanded;
+
+	public HexPathfinder(HexMap map) {
+		this.map = map;
+
+		int cells = map.size();
+		open = new IndexedHeap(cells);
+		costs = new float[cells];
+		parents = new int[cells];
+		seen = new int[cells];
+		closed = new int[cells];
+	}
+
+	/**
+	 * Cheapest path from start to goal, both included, into path. Returns false
+	 * and leaves path empty when goal can't be reached.
+	 */
+	public boolean findPath(int start, int goal, MoveCosts moveCosts, IntArray path){
+		path.clear();
+		if (!map.isUsed(start) || !map.isUsed(goal))
+			return false;
+
+		begin(start);
+		float heuristic = moveCosts.getMin();
+		int goalQ = map.getQ(goal), goalR = map.getR(goal);
+		byte[] terrain = map.terrain, links = map.links;
+
+		while (!open.isEmpty()){
+			int current = open.pop();
+			if (current == goal){
+				tracePath(goal, path);
+				return true;
+			}
+
+			closed[current] = stamp;
+			expanded++;
+			float cost = costs[current];
+
+			for (int bits = links[current]; bits != 0; bits &= bits - 1){
+				int next = current + map.getOffset(Integer.numberOfTrailingZeros(bits));
+				if (closed[next] == stamp)
+					continue;
+
+				float nextCost = cost + moveCosts.get(terrain[next]);
+				if (nextCost == MoveCosts.BLOCKED || (seen[next] == stamp && nextCost >= costs[next]))
+					continue;
+
+				seen[next] = stamp;
+				costs[next] = nextCost;
+				parents[next] = current;
+				open.push(next, nextCost + heuristic*HexMap.distance(map.getQ(next), map.getR(next), goalQ, goalR));
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Every cell reachable from start for at most budget, start included, into
+	 * out in order of cost. getCost and getPath work on them afterwards.
+	 */
+	public IntArray reachable(int start, MoveCosts moveCosts, float budget, IntArray out){
+		out.clear();
+		if (!map.isUsed(start))
+			return out;
+
+		begin(start);
+		byte[] terrain = map.terrain, links = map.links;
+
+		while (!open.isEmpty()){
+			int current = open.pop();
+			closed[current] = stamp;
+			expanded++;
+			out.add(current);
+			float cost = costs[current];
+
+			for (int bits = links[current]; bits != 0; bits &= bits - 1){
+				int next = current + map.getOffset(Integer.numberOfTrailingZeros(bits));
+				if (closed[next] == stamp)
+					continue;
+
+				float nextCost = cost + moveCosts.get(terrain[next]);
+				if (nextCost > budget || (seen[next] == stamp && nextCost >= costs[next]))
+					continue;
+
+				seen[next] = stamp;
+				costs[next] = nextCost;
+				parents[next] = current;
+				open.push(next, nextCost);
+			}
+		}
+		return out;
+	}
+
+	private void begin(int start){
+		open.clear();
+		expanded = 0;
+
+		if (++stamp == Integer.MAX_VALUE){
+			stamp = 1;
+			for (int i = 0; i < seen.length; i++)
+				seen[i] = closed[i] = 0;
+		}
+
+		seen[start] = stamp;
+		costs[start] = 0;
+		parents[start] = -1;
+		open.push(start, 0);
+	}
+
+	private void tracePath(int end, IntArray path){
+		for (int cell = end; cell != -1; cell = parents[cell])
+			path.add(cell);
+		path.reverse();
+	}
+
+	/** Cost to reach cell in the last search, infinite if it wasn't reached. **/
+	public float getCost(int cell){
+		return seen[cell] == stamp ? costs[cell] : MoveCosts.BLOCKED;
+	}
+
+	/** Path to a cell settled by the last reachable() call. **/
+	public boolean getPath(int cell, IntArray path){
+		path.clear();
+		if (closed[cell] != stamp)
+			return false;
+
+		tracePath(cell, path);
+		return true;
+	}
+
+	/** Cells taken off the open list by the last search. **/
+	public int getExpanded(){
+		return expanded;
+	}
+}
@@ -0,0 +1,192 @@
+package com.johnathongoss.libgdxtests.hex;
+
+import com.badlogic.gdx.utils.FloatArray;
+import com.badlogic.gdx.utils.IntArray;
+
+/**
+ * Area queries on a {@link HexMap}: every cell within a radius, a ring, a
+ * line between two cells and what can be seen from a cell. Results are cell
+ * indices written into the caller's IntArray, which is cleared first. Only
+ * used cells are returned.
+ *
+ * See {@link HexQueryCache} to keep the results of repeated queries.
+ */
+public class HexQueries {
+
+	/** Set on cells that block sight, unused cells always do. **/
+	public static final byte OPAQUE = 2;
+
+	/** Walking a ring starts this way from the centre and turns through the rest in order. **/
+	private static final int RING_START = HexMap.TOP_LEFT;
+	private static final float EDGE = 1e-5f;
+
+	private final HexMap map;
+	private final FloatArray shadows = new FloatArray(), cast = new FloatArray();
+
+	public HexQueries(HexMap map) {
+		this.map = map;
+	}
+
+	/** Cells at most radius steps from center, center included. **/
+	public IntArray range(int center, int radius, IntArray out){
+		out.clear();
+		int q = map.getQ(center), r = map.getR(center);
+
+		for (int dq = -radius; dq <= radius; dq++){
+			int from = Math.max(-radius, -dq - radius), to = Math.min(radius, -dq + radius);
+			for (int dr = from; dr <= to; dr++)
+				if (map.isUsed(q + dq, r + dr))
+					out.add(map.index(q + dq, r + dr));
+		}
+		return out;
+	}
+
+	/** Cells exactly radius steps from center, walking clockwise. **/
+	public IntArray ring(int center, int radius, IntArray out){
+		out.clear();
+		int q = map.getQ(center), r = map.getR(center);
+
+		if (radius == 0){
+			if (map.isUsed(center))
+				out.add(center);
+			return out;
+		}
+
+		q += HexMap.DIRECTION_Q[RING_START]*radius;
+		r += HexMap.DIRECTION_R[RING_START]*radius;
+		for (int side = 0; side < 6; side++){
+			int direction = (RING_START + 2 + side) % 6;
+			for (int step = 0; step < radius; step++){
+				if (map.isUsed(q, r))
+					out.add(map.index(q, r));
+				q += HexMap.DIRECTION_Q[direction];
+				r += HexMap.DIRECTION_R[direction];
+			}
+		}
+		return out;
+	}
+
+	/** Cells a straight line from a to b passes through, both ends included. **/
+	public IntArray line(int a, int b, IntArray out){
+		out.clear();
+		int q1 = map.getQ(a), r1 = map.getR(a), q2 = map.getQ(b), r2 = map.getR(b);
+		int steps = HexMap.distance(q1, r1, q2, r2);
+
+		// Nudged off the edges so lines along them don't flip between sides
+		float fromQ = q1 + 1e-6f, fromR = r1 + 1e-6f, toQ = q2 + 1e-6f, toR = r2 + 1e-6f;
+		for (int i = 0; i <= steps; i++){
+			float t = steps == 0 ? 0 : (float)i/steps;
+			float q = fromQ + (toQ - fromQ)*t, r = fromR + (toR - fromR)*t;
+			int cell = map.round(q, r);
+			if (cell != -1 && map.isUsed(cell))
+				out.add(cell);
+		}
+		return out;
+	}
+
+	/** Whether nothing OPAQUE lies strictly between a and b. **/
+	public boolean hasLineOfSight(int a, int b, IntArray scratch){
+		line(a, b, scratch);
+		if (scratch.size == 0 || scratch.peek() != b)
+			return false;
+
+		for (int i = 1; i < scratch.size - 1; i++)
+			if (map.hasFlag(scratch.get(i), OPAQUE))
+				return false;
+		return scratch.size == HexMap.distance(map.getQ(a), map.getR(a), map.getQ(b), map.getR(b)) + 1;
+	}
+
+	/**
+	 * Cells visible from center within radius, by shadow casting ring by ring.
+	 * Each cell on ring k covers 1/6k of a turn. A cell is visible unless its
+	 * centre is in the shadow of a visible opaque cell closer in, so walls are
+	 * seen but not seen through. Angles are measured along the rings rather
+	 * than on screen, which is close enough and needs no trigonometry.
+	 */
+	public IntArray fieldOfView(int center, int radius, IntArray out){
+		out.clear();
+		if (!map.isUsed(center))
+			return out;
+
+		out.add(center);
+		shadows.clear();
+		int q = map.getQ(center), r = map.getR(center);
+
+		for (int k = 1; k <= radius && !isDark(); k++){
+			int cellQ = q + HexMap.DIRECTION_Q[RING_START]*k, cellR = r + HexMap.DIRECTION_R[RING_START]*k;
+			float width = 1f/(6*k);
+			int i = 0;
+
+			// Shadows cast by this ring only start on the next
+			cast.clear();
+			for (int side = 0; side < 6; side++){
+				int direction = (RING_START + 2 + side) % 6;
+				for (int step = 0; step < k; step++, i++){
+					float angle = i*width;
+					boolean used = map.isUsed(cellQ, cellR);
+					if (!inShadow(angle)){
+						int cell = used ? map.index(cellQ, cellR) : -1;
+						if (used)
+							out.add(cell);
+						if (!used || map.hasFlag(cell, OPAQUE)){
+							cast.add(angle - width/2);
+							cast.add(angle + width/2);
+						}
+					}
+					cellQ += HexMap.DIRECTION_Q[direction];
+					cellR += HexMap.DIRECTION_R[direction];
+				}
+			}
+
+			for (int n = 0; n < cast.size; n += 2)
+				addShadow(cast.get(n), cast.get(n + 1));
+		}
+		return out;
+	}
+
+	/**
+	 * shadows holds sorted, merged start/end pairs in [0, 1]. A centre on the
+	 * edge of a shadow is lit, so the sides of walls can be seen, except at 0:
+	 * a shadow starting there is the end of one that wrapped around past 1, and
+	 * the cells straight behind a wall in the RING_START direction sit on it.
+	 * Edges are compared with some slack, as ring angles don't add up exactly
+	 * in floats.
+	 */
+	private boolean inShadow(float angle){
+		for (int i = 0; i < shadows.size; i += 2){
+			float start = shadows.get(i);
+			if (start > 0 ? angle <= start + EDGE : angle < start)
+				return false;
+			if (angle < shadows.get(i + 1) - EDGE)
+				return true;
+		}
+		return false;
+	}
+
+	private boolean isDark(){
+		return shadows.size == 2 && shadows.get(0) <= 0 && shadows.get(1) >= 1;
+	}
+
+	private void addShadow(float start, float end){
+		// The first cell of a ring straddles angle 0
+		if (start < 0){
+			addShadow(0, end);
+			addShadow(1 + start, 1);
+			return;
+		}
+
+		int i = 0;
+		while (i < shadows.size && shadows.get(i + 1) < start)
+			i += 2;
+
+		// Swallow every interval that overlaps, then put the union back at i
+		while (i < shadows.size && shadows.get(i) <= end){
+			start = Math.min(start, shadows.get(i));
+			end = Math.max(end, shadows.get(i + 1));
+			shadows.removeIndex(i);
+			shadows.removeIndex(i);
+		}
+		shadows.insert(i, end);
+		shadows.insert(i, start);
+	}
+}
@@ -0,0 +1,115 @@
+package com.johnathongoss.libgdxtests.hex;
+
+import com.badlogic.gdx.utils.IntArray;
+
+/**
+ * Keeps the results of recent {@link HexQueries}, so asking for the same
+ * range or field of view again in a turn is a lookup.
+ *
+ * Entries are keyed by query, origin, radius (or the other end of a line)
+ * and the map's version, so any change to the map makes them miss. When
+ * full, the least recently used entry is overwritten. The cache is small
+ * and searched linearly; entry arrays are reused, so after warming up
+ * nothing is allocated.
+ *
+ * Returned arrays belong to the cache. Don't change them, and don't keep
+ * them past the next query that misses.
+ */
+public class HexQueryCache {
+
+	static final int RANGE = 0, RING = 1, LINE = 2, FIELD_OF_VIEW = 3;
+
+	private final HexMap map;
+	private final HexQueries queries;
+	private final int[] types, origins, radii, versions;
+	private final long[] used;
+	private final IntArray[] results;
+	private int size;
+	private long clock;
+	private int hits, misses;
+
+	public HexQueryCache(HexMap map, int capacity) {
+		this.map = map;
+		queries = new HexQueries(map);
+		types = new int[capacity];
+		origins = new int[capacity];
+		radii = new int[capacity];
+		versions = new int[capacity];
+		used = new long[capacity];
+		results = new IntArray[capacity];
+		for (int i = 0; i < capacity; i++)
+			results[i] = new IntArray();
+	}
+
+	public IntArray range(int center, int radius){
+		int entry = find(RANGE, center, radius);
+		return entry >= 0 ? results[entry] : queries.range(center, radius, results[store(~entry, RANGE, center, radius)]);
+	}
+
+	public IntArray ring(int center, int radius){
+		int entry = find(RING, center, radius);
+		return entry >= 0 ? results[entry] : queries.ring(center, radius, results[store(~entry, RING, center, radius)]);
+	}
+
+	public IntArray line(int a, int b){
+		int entry = find(LINE, a, b);
+		return entry >= 0 ? results[entry] : queries.line(a, b, results[store(~entry, LINE, a, b)]);
+	}
+
+	public IntArray fieldOfView(int center, int radius){
+		int entry = find(FIELD_OF_VIEW, center, radius);
+		return entry >= 0 ? results[entry] : queries.fieldOfView(center, radius, results[store(~entry, FIELD_OF_VIEW, center, radius)]);
+	}
+
+	/** The entry holding this query, or ~(the entry to replace). **/
+	private int find(int type, int origin, int radius){
+		int version = map.getVersion();
+		int oldest = 0;
+
+		for (int i = 0; i < size; i++){
+			if (types[i] == type && origins[i] == origin && radii[i] == radius && versions[i] == version){
+				used[i] = ++clock;
+				hits++;
+				return i;
+			}
+			if (used[i] < used[oldest])
+				oldest = i;
+		}
+
+		misses++;
+		return ~(size < types.length ? size : oldest);
+	}
+
+	private int store(int entry, int type, int origin, int radius){
+		if (entry == size)
+			size++;
+
+		types[entry] = type;
+		origins[entry] = origin;
+		radii[entry] = radius;
+		versions[entry] = map.getVersion();
+		used[entry] = ++clock;
+		return entry;
+	}
+
+	/** Forgets every entry, eg. to free the space big results took. **/
+	public void clear(){
+		for (int i = 0; i < size; i++){
+			results[i].clear();
+			results[i].shrink();
+		}
+		size = 0;
+	}
+
+	public int getHits(){
+		return hits;
+	}
+
+	public int getMisses(){
+		return misses;
+	}
+
+	public HexQueries getQueries(){
+		return queries;
+	}
+}
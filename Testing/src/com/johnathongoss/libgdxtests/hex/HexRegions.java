@@ -0,0 +1,204 @@
+package com.johnathongoss.libgdxtests.hex;
+
+/**
+ * Connected groups of cells that pass a {@link Predicate}, eg. selected
+ * cells or one player's territory, kept up to date as the map changes.
+ *
+ * A union-find with path halving and union by size: a cell joining is a
+ * union with its member neighbours, and "which region, how big" is a find.
+ * Cells leaving can't be undone in a union-find, so the region the cell was
+ * part of is rebuilt by flood filling out from its neighbours, which only
+ * costs that region's size. A change to the whole map rebuilds everything.
+ */
+public class HexRegions implements HexMap.Listener {
+
+	public interface Predicate {
+		public boolean isMember(HexMap map, int index);
+	}
+
+	public static final Predicate SELECTED = new Predicate() {
+		@Override
+		public boolean isMember(HexMap map, int index) {
+			return map.hasFlag(index, HexMap.SELECTED);
+		}
+	};
+
+	private final HexMap map;
+	private final Predicate predicate;
+	private final int[] parents; // -1 for cells that aren't members
+	private final int[] sizes; // only meaningful at roots
+	private final int[] queue, visited;
+	private int stamp, regions;
+	private int fullRebuilds, splits;
+
+	public HexRegions(HexMap map, Predicate predicate) {
+		this.map = map;
+		this.predicate = predicate;
+
+		int cells = map.size();
+		parents = new int[cells];
+		sizes = new int[cells];
+		queue = new int[cells];
+		visited = new int[cells];
+
+		rebuild();
+		map.addListener(this);
+	}
+
+	/** Recomputes every region from scratch. **/
+	public void rebuild(){
+		regions = 0;
+		for (int i = 0; i < parents.length; i++){
+			boolean member = map.isUsed(i) && predicate.isMember(map, i);
+			parents[i] = member ? i : -1;
+			sizes[i] = member ? 1 : 0;
+			if (member)
+				regions++;
+		}
+
+		// Linking each cell to the members before it is enough to join everything
+		for (int i = 0; i < parents.length; i++){
+			if (parents[i] == -1)
+				continue;
+			for (int links = map.getLinks(i); links != 0; links &= links - 1){
+				int neighbor = i + map.getOffset(Integer.numberOfTrailingZeros(links));
+				if (neighbor < i && parents[neighbor] != -1)
+					union(i, neighbor);
+			}
+		}
+		fullRebuilds++;
+	}
+
+	@Override
+	public void cellChanged(HexMap map, int index) {
+		if (index == -1){
+			rebuild();
+			return;
+		}
+
+		boolean member = map.isUsed(index) && predicate.isMember(map, index);
+		boolean was = parents[index] != -1;
+		if (member && !was)
+			add(index);
+		else if (!member && was)
+			remove(index);
+	}
+
+	private void add(int index){
+		parents[index] = index;
+		sizes[index] = 1;
+		regions++;
+
+		for (int links = map.getLinks(index); links != 0; links &= links - 1){
+			int neighbor = index + map.getOffset(Integer.numberOfTrailingZeros(links));
+			if (parents[neighbor] != -1)
+				union(index, neighbor);
+		}
+	}
+
+	/**
+	 * The cell's old region may fall apart into up to three pieces. Each
+	 * member neighbour not reached by an earlier flood starts a new one.
+	 */
+	private void remove(int index){
+		int root = find(index);
+		parents[index] = -1;
+		sizes[index] = 0;
+		regions--;
+		if (sizes[root] == 1 && root == index)
+			return;
+
+		splits++;
+		nextStamp();
+		visited[index] = stamp;
+
+		for (int bits = map.getLinks(index); bits != 0; bits &= bits - 1){
+			int start = index + map.getOffset(Integer.numberOfTrailingZeros(bits));
+			if (parents[start] == -1 || visited[start] == stamp)
+				continue;
+
+			// Flood fill the piece, every cell points straight at start
+			int head = 0, tail = 0;
+			queue[tail++] = start;
+			visited[start] = stamp;
+			while (head < tail){
+				int cell = queue[head++];
+				parents[cell] = start;
+				for (int links = map.getLinks(cell); links != 0; links &= links - 1){
+					int next = cell + map.getOffset(Integer.numberOfTrailingZeros(links));
+					if (parents[next] != -1 && visited[next] != stamp){
+						visited[next] = stamp;
+						queue[tail++] = next;
+					}
+				}
+			}
+			sizes[start] = tail;
+			regions++;
+		}
+	}
+
+	private void nextStamp(){
+		if (++stamp == Integer.MAX_VALUE){
+			stamp = 1;
+			for (int i = 0; i < visited.length; i++)
+				visited[i] = 0;
+		}
+	}
+
+	private void union(int a, int b){
+		a = find(a);
+		b = find(b);
+		if (a == b)
+			return;
+
+		if (sizes[a] < sizes[b]){
+			int swap = a;
+			a = b;
+			b = swap;
+		}
+		parents[b] = a;
+		sizes[a] += sizes[b];
+		regions--;
+	}
+
+	/** Region id of a cell, the same for every cell in the region, or -1 if it isn't a member. **/
+	public int find(int index){
+		if (parents[index] == -1)
+			return -1;
+
+		while (parents[index] != index){
+			parents[index] = parents[parents[index]];
+			index = parents[index];
+		}
+		return index;
+	}
+
+	/** Cells in the cell's region, 0 if it isn't a member. **/
+	public int getSize(int index){
+		int root = find(index);
+		return root == -1 ? 0 : sizes[root];
+	}
+
+	public boolean isConnected(int a, int b){
+		int root = find(a);
+		return root != -1 && root == find(b);
+	}
+
+	public int getRegionCount(){
+		return regions;
+	}
+
+	/** Whole map rebuilds so far. **/
+	public int getFullRebuilds(){
+		return fullRebuilds;
+	}
+
+	/** Removals that flood filled a region again so far. **/
+	public int getSplits(){
+		return splits;
+	}
+
+	public void dispose(){
+		map.removeListener(this);
+	}
+}
@@ -0,0 +1,229 @@
+package com.johnathongoss.libgdxtests.hex;
+
+import com.badlogic.gdx.graphics.OrthographicCamera;
+import com.badlogic.gdx.graphics.g2d.SpriteCache;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.utils.Disposable;
+
+/**
+ * Draws a {@link HexMap} from geometry baked into a SpriteCache, a chunk of
+ * CHUNK x CHUNK cells (in q, r) per cache, instead of a sprite per cell per
+ * frame.
+ *
+ * Chunks are baked the first time they come into view and only rebaked when
+ * one of their cells changes, which the renderer hears about as a map
+ * listener. Chunks outside the camera are skipped. There is a fixed number
+ * of slots, each cache reserving room for a full chunk; when they run out
+ * the chunk seen longest ago gives its slot up. Chunks over the slot count
+ * in view at once are not drawn, see getSkipped().
+ *
+ * A rebake re-uploads the cache's vertex buffer, so it is meant for edits
+ * like a selection toggle, not for animating cells.
+ */
+public class HexRenderer implements HexMap.Listener, Disposable {
+
+	public static final int CHUNK = 16;
+	static final int EMPTY = -2;
+
+	/** What each cell looks like, null to leave it out. **/
+	public interface Style {
+		public TextureRegion getRegion(HexMap map, int index);
+	}
+
+	private final HexMap map;
+	private final HexLayout layout;
+	private final Style style;
+	private final SpriteCache cache;
+
+	final int chunksQ, chunksR;
+	private final int[] slotOf; // per chunk, -1 when not baked, EMPTY when there is nothing to draw
+	private final boolean[] dirty;
+	private final int[] chunkOf, lastDrawn; // per slot
+	private int slotCount, frame;
+	private int drawn, rebuilt, skipped;
+
+	public HexRenderer(HexMap map, HexLayout layout, Style style, int slots) {
+		this.map = map;
+		this.layout = layout;
+		this.style = style;
+
+		chunksQ = (map.width + CHUNK - 1)/CHUNK;
+		chunksR = (map.height + CHUNK - 1)/CHUNK;
+		slotOf = new int[chunksQ*chunksR];
+		dirty = new boolean[chunksQ*chunksR];
+		for (int i = 0; i < slotOf.length; i++)
+			slotOf[i] = -1;
+
+		chunkOf = new int[slots];
+		lastDrawn = new int[slots];
+		cache = new SpriteCache(slots*CHUNK*CHUNK, false);
+
+		map.addListener(this);
+	}
+
+	@Override
+	public void cellChanged(HexMap map, int index) {
+		if (index == -1){
+			for (int i = 0; i < dirty.length; i++)
+				dirty[i] = true;
+			return;
+		}
+
+		dirty[chunk(map.getQ(index), map.getR(index))] = true;
+	}
+
+	int chunk(int q, int r){
+		return (r/CHUNK)*chunksQ + q/CHUNK;
+	}
+
+	public void render(OrthographicCamera cam){
+		frame++;
+		drawn = rebuilt = skipped = 0;
+
+		float halfWidth = cam.viewportWidth*cam.zoom/2, halfHeight = cam.viewportHeight*cam.zoom/2;
+		float left = cam.position.x - halfWidth, right = cam.position.x + halfWidth;
+		float bottom = cam.position.y - halfHeight, top = cam.position.y + halfHeight;
+
+		int firstRow = Math.max(0, (int)Math.floor((bottom - layout.imageHeight/2)/layout.rowHeight) - 1);
+		int lastRow = Math.min(map.height - 1, (int)Math.ceil((top + layout.imageHeight/2)/layout.rowHeight) + 1);
+		if (firstRow > lastRow)
+			return;
+
+		cache.setProjectionMatrix(cam.combined);
+		cache.begin();
+
+		// Bottom chunks first, upper rows overlap the ones below
+		for (int chunkR = firstRow/CHUNK; chunkR <= lastRow/CHUNK; chunkR++){
+			for (int chunkQ = 0; chunkQ < chunksQ; chunkQ++){
+				if (!isVisible(chunkQ, chunkR, left, right))
+					continue;
+
+				int chunk = chunkR*chunksQ + chunkQ;
+				int slot = slotOf[chunk];
+				if (slot == EMPTY && !dirty[chunk])
+					continue;
+				if (slot < 0 || dirty[chunk]){
+					slot = bake(chunk, slot);
+					if (slot == -1)
+						continue;
+				}
+
+				lastDrawn[slot] = frame;
+				cache.draw(slot);
+				drawn++;
+			}
+		}
+		cache.end();
+	}
+
+	/** The chunk is a parallelogram on screen, this tests its bounding box across. **/
+	private boolean isVisible(int chunkQ, int chunkR, float left, float right){
+		int q0 = chunkQ*CHUNK, r0 = chunkR*CHUNK;
+		int q1 = Math.min(q0 + CHUNK, map.width) - 1, r1 = Math.min(r0 + CHUNK, map.height) - 1;
+		float minX = layout.getCenterX(q0, r0) - layout.imageWidth/2;
+		float maxX = layout.getCenterX(q1, r1) + layout.imageWidth/2;
+		return maxX >= left && minX <= right;
+	}
+
+	/** Bakes chunk into its slot or a free one, returns the slot or -1 if it has nothing to draw or no slot is free. **/
+	private int bake(int chunk, int slot){
+		int q0 = (chunk % chunksQ)*CHUNK, r0 = (chunk / chunksQ)*CHUNK;
+		int q1 = Math.min(q0 + CHUNK, map.width), r1 = Math.min(r0 + CHUNK, map.height);
+		dirty[chunk] = false;
+
+		TextureRegion padding = null;
+		for (int r = r0; r < r1 && padding == null; r++)
+			for (int q = q0; q < q1 && padding == null; q++)
+				if (map.isUsed(map.index(q, r)))
+					padding = style.getRegion(map, map.index(q, r));
+
+		if (padding == null){
+			// Nothing to draw, give the slot back
+			if (slot >= 0){
+				chunkOf[slot] = -1;
+				lastDrawn[slot] = 0;
+			}
+			slotOf[chunk] = EMPTY;
+			return -1;
+		}
+
+		if (slot < 0){
+			slot = takeSlot();
+			if (slot == -1){
+				dirty[chunk] = true;
+				skipped++;
+				return -1;
+			}
+			slotOf[chunk] = slot;
+			chunkOf[slot] = chunk;
+		}
+
+		if (slot == slotCount){
+			slotCount++;
+			cache.beginCache();
+		}
+		else
+			cache.beginCache(slot);
+
+		int count = 0;
+		for (int r = r0; r < r1; r++){
+			for (int q = q0; q < q1; q++){
+				int index = map.index(q, r);
+				if (!map.isUsed(index))
+					continue;
+
+				TextureRegion region = style.getRegion(map, index);
+				if (region == null)
+					continue;
+
+				cache.add(region, layout.getX(q, r), layout.getY(q, r));
+				count++;
+			}
+		}
+
+		// Every cache reserves a full chunk, the last one would otherwise shrink to fit
+		// and not take a bigger bake once another comes after it. Empty sprites draw nothing.
+		for (; count < CHUNK*CHUNK; count++)
+			cache.add(padding, 0, 0, 0, 0);
+
+		cache.endCache();
+		rebuilt++;
+		return slot;
+	}
+
+	/** A slot never used, or the one drawn longest ago that wasn't drawn this frame. **/
+	private int takeSlot(){
+		if (slotCount < chunkOf.length)
+			return slotCount;
+
+		int oldest = -1;
+		for (int slot = 0; slot < slotCount; slot++)
+			if (lastDrawn[slot] != frame && (oldest == -1 || lastDrawn[slot] < lastDrawn[oldest]))
+				oldest = slot;
+
+		if (oldest != -1 && chunkOf[oldest] != -1)
+			slotOf[chunkOf[oldest]] = -1;
+		return oldest;
+	}
+
+	/** Chunks drawn, that is draw calls, in the last render. **/
+	public int getDrawn(){
+		return drawn;
+	}
+
+	/** Chunks baked in the last render. **/
+	public int getRebuilt(){
+		return rebuilt;
+	}
+
+	/** Visible chunks left out in the last render for lack of slots. **/
+	public int getSkipped(){
+		return skipped;
+	}
+
+	@Override
+	public void dispose() {
+		map.removeListener(this);
+		cache.dispose();
+	}
+}
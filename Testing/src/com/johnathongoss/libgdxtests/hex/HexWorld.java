@@ -0,0 +1,338 @@
+package com.johnathongoss.libgdxtests.hex;
+
+import com.badlogic.gdx.graphics.OrthographicCamera;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.IntMap;
+
+/**
+ * A hex map too big for the heap, streamed a chunk at a time from a
+ * {@link HexChunkFile}.
+ *
+ * Chunks are copied into arrays of their own when first needed, either by
+ * load() around the camera each frame or by reading a cell, and edits go to
+ * those copies. Once more than the memory budget's worth are resident, the
+ * chunk used longest ago is dropped, written back first if it was changed.
+ * Chunks loaded for the current frame are never dropped, so a view bigger
+ * than the budget goes over it rather than thrashing, see getPeakResident().
+ * The next load() drops the surplus again, the previous frame's chunks last.
+ *
+ * Cells are addressed by q, r as in HexMap, or by a long key() where one
+ * number is needed. Cell access outside any loaded chunk loads it, so keep
+ * it to around the camera. Nothing is written to the file until a chunk is
+ * dropped, flush() or dispose().
+ *
+ * {@link HexWorldRenderer} draws the resident chunks and HexLayout picks
+ * cells in them; HexGridTest's world mode uses both. HexLabels, HexQueries,
+ * HexPathfinder and HexRegions still need a whole HexMap.
+ */
+public class HexWorld implements Disposable {
+
+	static class Chunk {
+		int id, lastUsed, stamp;
+		boolean dirty;
+		final byte[] terrain, flags;
+		final long[] used;
+		final int[] values;
+
+		Chunk(int cells) {
+			terrain = new byte[cells];
+			flags = new byte[cells];
+			used = new long[cells/64];
+			values = new int[cells];
+		}
+	}
+
+	public final HexChunkFile file;
+	public final int width, height, chunkSize;
+	private final int maxResident;
+
+	private final IntMap<Chunk> resident = new IntMap<Chunk>();
+	private final Array<Chunk> chunks = new Array<Chunk>(false, 64);
+	private Chunk last;
+	private int frame, version, stamp;
+	private final IntArray scratch = new IntArray();
+	private int loads, evictions, writes, peakResident;
+
+	/** budget is the heap, in bytes, given to resident chunks. **/
+	public HexWorld(HexChunkFile file, long budget) {
+		this.file = file;
+		width = file.width;
+		height = file.height;
+		chunkSize = file.chunkSize;
+		maxResident = (int)Math.max(1, Math.min(Integer.MAX_VALUE, budget/getChunkBytes()));
+	}
+
+	/** Heap one resident chunk takes, near enough. **/
+	public int getChunkBytes(){
+		return file.cells*6 + file.cells/8;
+	}
+
+	/**
+	 * Loads every chunk that has cells in view, plus margin chunks around
+	 * them, and starts a new frame for the LRU. The view is in world units
+	 * as laid out by layout.
+	 */
+	public void load(HexLayout layout, float left, float bottom, float right, float top, int margin){
+		frame++;
+		trim();
+
+		getChunks(layout, left, bottom, right, top, margin, scratch);
+		for (int i = 0; i < scratch.size; i++)
+			get(scratch.get(i));
+	}
+
+	/** load() for what cam sees. **/
+	public void load(HexLayout layout, OrthographicCamera cam, int margin){
+		float halfWidth = cam.viewportWidth*cam.zoom/2, halfHeight = cam.viewportHeight*cam.zoom/2;
+		load(layout, cam.position.x - halfWidth, cam.position.y - halfHeight, cam.position.x + halfWidth, cam.position.y + halfHeight, margin);
+	}
+
+	/**
+	 * The chunks with cells in view, plus margin chunks around them, bottom
+	 * row of chunks first. Nothing is loaded.
+	 */
+	public IntArray getChunks(HexLayout layout, float left, float bottom, float right, float top, int margin, IntArray out){
+		out.clear();
+		int firstRow = Math.max(0, (int)Math.floor((bottom - layout.imageHeight/2)/layout.rowHeight));
+		int lastRow = Math.min(height - 1, (int)Math.ceil((top + layout.imageHeight/2)/layout.rowHeight));
+		if (firstRow > lastRow)
+			return out;
+
+		int firstChunkR = Math.max(0, firstRow/chunkSize - margin), lastChunkR = Math.min(file.chunksR - 1, lastRow/chunkSize + margin);
+		for (int chunkR = firstChunkR; chunkR <= lastChunkR; chunkR++){
+			// Rows lean right as r goes up, the widest q range is from the bottom row's left to the top row's right
+			int r0 = chunkR*chunkSize, r1 = Math.min(height - 1, r0 + chunkSize - 1);
+			int firstQ = (int)Math.floor((left - layout.imageWidth/2)/layout.columnWidth - r1/2f);
+			int lastQ = (int)Math.ceil((right + layout.imageWidth/2)/layout.columnWidth - r0/2f);
+			if (lastQ < 0 || firstQ >= width)
+				continue;
+
+			int firstChunkQ = Math.max(0, Math.max(0, firstQ)/chunkSize - margin);
+			int lastChunkQ = Math.min(file.chunksQ - 1, Math.min(width - 1, lastQ)/chunkSize + margin);
+			for (int chunkQ = firstChunkQ; chunkQ <= lastChunkQ; chunkQ++)
+				out.add(chunkR*file.chunksQ + chunkQ);
+		}
+		return out;
+	}
+
+	private Chunk get(int id){
+		Chunk chunk = last != null && last.id == id ? last : resident.get(id);
+		if (chunk == null){
+			chunk = chunks.size >= maxResident ? evict() : null;
+			if (chunk == null){
+				chunk = new Chunk(file.cells);
+				peakResident = Math.max(peakResident, chunks.size + 1);
+			}
+			chunks.add(chunk);
+
+			chunk.id = id;
+			chunk.dirty = false;
+			file.read(id, chunk.terrain, chunk.flags, chunk.used, chunk.values);
+			chunk.stamp = ++stamp;
+			resident.put(id, chunk);
+			loads++;
+		}
+		chunk.lastUsed = frame;
+		last = chunk;
+		return chunk;
+	}
+
+	/**
+	 * Gets back under the budget after a view that needed more, once the
+	 * frame has moved on. The last frame's chunks are the newest, so they go
+	 * last; the next view mostly needs them again.
+	 */
+	private void trim(){
+		while (chunks.size > maxResident && evict() != null);
+	}
+
+	/** Drops the chunk used longest ago, not counting this frame's, and returns it for reuse. Null if there is none. **/
+	private Chunk evict(){
+		int oldest = -1;
+		for (int i = 0; i < chunks.size; i++){
+			int lastUsed = chunks.get(i).lastUsed;
+			if (lastUsed != frame && (oldest == -1 || lastUsed < chunks.get(oldest).lastUsed))
+				oldest = i;
+		}
+		if (oldest == -1)
+			return null;
+
+		Chunk chunk = chunks.removeIndex(oldest);
+		store(chunk);
+		resident.remove(chunk.id);
+		if (last == chunk)
+			last = null;
+		evictions++;
+		return chunk;
+	}
+
+	private void store(Chunk chunk){
+		if (!chunk.dirty)
+			return;
+		file.write(chunk.id, chunk.terrain, chunk.flags, chunk.used, chunk.values);
+		chunk.dirty = false;
+		writes++;
+	}
+
+	private Chunk chunkAt(int q, int r){
+		if (q < 0 || r < 0 || q >= width || r >= height)
+			throw new IndexOutOfBoundsException("[" + q + ", " + r + "] is outside the world");
+		return get(file.getChunk(q, r));
+	}
+
+	private int cell(int q, int r){
+		return (r % chunkSize)*chunkSize + q % chunkSize;
+	}
+
+	private void changed(Chunk chunk){
+		chunk.dirty = true;
+		chunk.stamp = ++stamp;
+		version++;
+	}
+
+	public boolean contains(int q, int r){
+		return q >= 0 && r >= 0 && q < width && r < height;
+	}
+
+	/** In the world and in use. **/
+	public boolean isUsed(int q, int r){
+		if (!contains(q, r))
+			return false;
+		int cell = cell(q, r);
+		return (chunkAt(q, r).used[cell >>> 6] & (1L << cell)) != 0;
+	}
+
+	public void setUsed(int q, int r, boolean used){
+		Chunk chunk = chunkAt(q, r);
+		int cell = cell(q, r);
+		if (used)
+			chunk.used[cell >>> 6] |= 1L << cell;
+		else
+			chunk.used[cell >>> 6] &= ~(1L << cell);
+		changed(chunk);
+	}
+
+	public int getTerrain(int q, int r){
+		return chunkAt(q, r).terrain[cell(q, r)];
+	}
+
+	public void setTerrain(int q, int r, int type){
+		Chunk chunk = chunkAt(q, r);
+		chunk.terrain[cell(q, r)] = (byte)type;
+		changed(chunk);
+	}
+
+	public boolean hasFlag(int q, int r, int flag){
+		return (chunkAt(q, r).flags[cell(q, r)] & flag) != 0;
+	}
+
+	public void setFlag(int q, int r, int flag, boolean on){
+		Chunk chunk = chunkAt(q, r);
+		if (on)
+			chunk.flags[cell(q, r)] |= flag;
+		else
+			chunk.flags[cell(q, r)] &= ~flag;
+		changed(chunk);
+	}
+
+	public void toggleFlag(int q, int r, int flag){
+		Chunk chunk = chunkAt(q, r);
+		chunk.flags[cell(q, r)] ^= flag;
+		changed(chunk);
+	}
+
+	public int getValue(int q, int r){
+		return chunkAt(q, r).values[cell(q, r)];
+	}
+
+	public void setValue(int q, int r, int value){
+		Chunk chunk = chunkAt(q, r);
+		chunk.values[cell(q, r)] = value;
+		changed(chunk);
+	}
+
+	/** Whether the chunk holding q, r is in memory, without loading it. **/
+	public boolean isResident(int q, int r){
+		return contains(q, r) && resident.containsKey(file.getChunk(q, r));
+	}
+
+	public boolean isChunkResident(int chunk){
+		return resident.containsKey(chunk);
+	}
+
+	/**
+	 * Changes whenever a cell of the chunk does or it is loaded again, -1
+	 * while it isn't resident. For caching what is built from a chunk.
+	 */
+	public int getChunkVersion(int chunk){
+		Chunk resident = this.resident.get(chunk);
+		return resident == null ? -1 : resident.stamp;
+	}
+
+	/** One number for q, r, see getQ() and getR(). **/
+	public long key(int q, int r){
+		return (long)r*width + q;
+	}
+
+	public int getQ(long key){
+		return (int)(key % width);
+	}
+
+	public int getR(long key){
+		return (int)(key / width);
+	}
+
+	/** Changes whenever any cell does. **/
+	public int getVersion(){
+		return version;
+	}
+
+	/** Writes every changed chunk to the file and the file to disk. **/
+	public void flush(){
+		for (int i = 0; i < chunks.size; i++)
+			store(chunks.get(i));
+		file.flush();
+	}
+
+	public int getResident(){
+		return chunks.size;
+	}
+
+	public long getResidentBytes(){
+		return (long)chunks.size*getChunkBytes();
+	}
+
+	/** Most chunks resident at once, over the budget if a view needed more. **/
+	public int getPeakResident(){
+		return peakResident;
+	}
+
+	public int getMaxResident(){
+		return maxResident;
+	}
+
+	/** Chunks read, dropped and written back so far. **/
+	public int getLoads(){
+		return loads;
+	}
+
+	public int getEvictions(){
+		return evictions;
+	}
+
+	public int getWrites(){
+		return writes;
+	}
+
+	/** Flushes and closes the file. **/
+	@Override
+	public void dispose() {
+		flush();
+		file.dispose();
+		resident.clear();
+		chunks.clear();
+		last = null;
+	}
+}
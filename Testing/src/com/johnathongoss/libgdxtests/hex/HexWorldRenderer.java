@@ -0,0 +1,185 @@
+package com.johnathongoss.libgdxtests.hex;
+
+import com.badlogic.gdx.graphics.OrthographicCamera;
+import com.badlogic.gdx.graphics.g2d.SpriteCache;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.IntIntMap;
+
+/**
+ * Draws the resident chunks of a {@link HexWorld} the way HexRenderer draws
+ * a HexMap: each chunk baked into a SpriteCache slot when it comes into view
+ * and rebaked only when its chunk version changes, a fixed number of slots
+ * going to the chunks drawn most recently.
+ *
+ * Nothing is kept per chunk of the world, only per slot, so this costs the
+ * same however big the world is. Call world.load() for the camera first,
+ * chunks in view that aren't resident are not drawn. Chunks with no used
+ * cell take no slot, and are checked again each frame they are in view.
+ */
+public class HexWorldRenderer implements Disposable {
+
+	/** What each cell looks like, null to leave it out. **/
+	public interface Style {
+		public TextureRegion getRegion(HexWorld world, int q, int r);
+	}
+
+	private final HexWorld world;
+	private final HexLayout layout;
+	private final Style style;
+	private final SpriteCache cache;
+	private final int cells;
+
+	private final IntIntMap slotOf = new IntIntMap();
+	private final int[] chunkOf, version, lastDrawn; // per slot
+	private final IntArray visible = new IntArray();
+	private int slotCount, frame;
+	private int drawn, rebuilt, skipped;
+
+	public HexWorldRenderer(HexWorld world, HexLayout layout, Style style, int slots) {
+		this.world = world;
+		this.layout = layout;
+		this.style = style;
+
+		cells = world.chunkSize*world.chunkSize;
+		chunkOf = new int[slots];
+		version = new int[slots];
+		lastDrawn = new int[slots];
+		cache = new SpriteCache(slots*cells, false);
+	}
+
+	public void render(OrthographicCamera cam){
+		frame++;
+		drawn = rebuilt = skipped = 0;
+
+		float halfWidth = cam.viewportWidth*cam.zoom/2, halfHeight = cam.viewportHeight*cam.zoom/2;
+		world.getChunks(layout, cam.position.x - halfWidth, cam.position.y - halfHeight, cam.position.x + halfWidth, cam.position.y + halfHeight, 0, visible);
+		if (visible.size == 0)
+			return;
+
+		cache.setProjectionMatrix(cam.combined);
+		cache.begin();
+
+		// Bottom chunks first, upper rows overlap the ones below
+		for (int i = 0; i < visible.size; i++){
+			int chunk = visible.get(i);
+			int chunkVersion = world.getChunkVersion(chunk);
+			if (chunkVersion == -1)
+				continue;
+
+			int slot = slotOf.get(chunk, -1);
+			if (slot == -1 || version[slot] != chunkVersion){
+				slot = bake(chunk, slot, chunkVersion);
+				if (slot == -1)
+					continue;
+			}
+
+			lastDrawn[slot] = frame;
+			cache.draw(slot);
+			drawn++;
+		}
+		cache.end();
+	}
+
+	/** Bakes chunk into its slot or a free one, returns the slot or -1 if it has nothing to draw or no slot is free. **/
+	private int bake(int chunk, int slot, int chunkVersion){
+		int q0 = (chunk % world.file.chunksQ)*world.chunkSize, r0 = (chunk / world.file.chunksQ)*world.chunkSize;
+		int q1 = Math.min(q0 + world.chunkSize, world.width), r1 = Math.min(r0 + world.chunkSize, world.height);
+
+		TextureRegion padding = null;
+		for (int r = r0; r < r1 && padding == null; r++)
+			for (int q = q0; q < q1 && padding == null; q++)
+				if (world.isUsed(q, r))
+					padding = style.getRegion(world, q, r);
+
+		if (padding == null){
+			// Nothing to draw, give the slot back
+			if (slot != -1){
+				slotOf.remove(chunk, -1);
+				chunkOf[slot] = -1;
+				lastDrawn[slot] = 0;
+			}
+			return -1;
+		}
+
+		if (slot == -1){
+			slot = takeSlot();
+			if (slot == -1){
+				skipped++;
+				return -1;
+			}
+			slotOf.put(chunk, slot);
+			chunkOf[slot] = chunk;
+		}
+		version[slot] = chunkVersion;
+
+		if (slot == slotCount){
+			slotCount++;
+			cache.beginCache();
+		}
+		else
+			cache.beginCache(slot);
+
+		int count = 0;
+		for (int r = r0; r < r1; r++){
+			for (int q = q0; q < q1; q++){
+				if (!world.isUsed(q, r))
+					continue;
+
+				TextureRegion region = style.getRegion(world, q, r);
+				if (region == null)
+					continue;
+
+				cache.add(region, layout.getX(q, r), layout.getY(q, r));
+				count++;
+			}
+		}
+
+		// Every cache reserves a full chunk, as in HexRenderer
+		for (; count < cells; count++)
+			cache.add(padding, 0, 0, 0, 0);
+
+		cache.endCache();
+		rebuilt++;
+		return slot;
+	}
+
+	/** A slot never used or given back, or the one drawn longest ago that wasn't drawn this frame. **/
+	private int takeSlot(){
+		if (slotCount < chunkOf.length)
+			return slotCount;
+
+		int oldest = -1;
+		for (int slot = 0; slot < slotCount; slot++){
+			if (chunkOf[slot] == -1)
+				return slot;
+			if (lastDrawn[slot] != frame && (oldest == -1 || lastDrawn[slot] < lastDrawn[oldest]))
+				oldest = slot;
+		}
+
+		if (oldest != -1)
+			slotOf.remove(chunkOf[oldest], -1);
+		return oldest;
+	}
+
+	/** Chunks drawn, that is draw calls, in the last render. **/
+	public int getDrawn(){
+		return drawn;
+	}
+
+	/** Chunks baked in the last render. **/
+	public int getRebuilt(){
+		return rebuilt;
+	}
+
+	/** Visible chunks left out in the last render for lack of slots. **/
+	public int getSkipped(){
+		return skipped;
+	}
+
+	@Override
+	public void dispose() {
+		cache.dispose();
+	}
+}
@@ -0,0 +1,129 @@
+package com.johnathongoss.libgdxtests.hex;
+
+/**
+ * Binary min-heap of cell indices ordered by a float priority, in primitive
+ * arrays. It remembers where every cell sits in the heap, so lowering a
+ * cell's priority is a sift up rather than a second entry.
+ *
+ * Cells are 0 to capacity - 1. clear() only touches the cells still queued,
+ * so one heap can serve any number of searches.
+ */
+public class IndexedHeap {
+
+	private final int[] items;
+	private final float[] priorities;
+	private final int[] positions; // -1 when not queued
+	private int size;
+
+	public IndexedHeap(int capacity) {
+		items = new int[capacity];
+		priorities = new float[capacity];
+		positions = new int[capacity];
+		for (int i = 0; i < capacity; i++)
+			positions[i] = -1;
+	}
+
+	public int size(){
+		return size;
+	}
+
+	public boolean isEmpty(){
+		return size == 0;
+	}
+
+	public boolean contains(int item){
+		return positions[item] != -1;
+	}
+
+	/** Queues item, or lowers its priority if it is queued with a higher one. **/
+	public void push(int item, float priority){
+		int position = positions[item];
+		if (position == -1){
+			position = size++;
+			items[position] = item;
+			positions[item] = position;
+		}
+		else if (priority >= priorities[position])
+			return;
+
+		priorities[position] = priority;
+		siftUp(position);
+	}
+
+	/** Lowest priority item, -1 when empty. **/
+	public int peek(){
+		return size == 0 ? -1 : items[0];
+	}
+
+	public float peekPriority(){
+		return priorities[0];
+	}
+
+	/** Removes and returns the lowest priority item, -1 when empty. **/
+	public int pop(){
+		if (size == 0)
+			return -1;
+
+		int top = items[0];
+		positions[top] = -1;
+
+		if (--size > 0){
+			items[0] = items[size];
+			priorities[0] = priorities[size];
+			positions[items[0]] = 0;
+			siftDown(0);
+		}
+		return top;
+	}
+
+	public void clear(){
+		for (int i = 0; i < size; i++)
+			positions[items[i]] = -1;
+		size = 0;
+	}
+
+	private void siftUp(int position){
+		int item = items[position];
+		float priority = priorities[position];
+
+		while (position > 0){
+			int parent = (position - 1) >>> 1;
+			if (priorities[parent] <= priority)
+				break;
+
+			move(parent, position);
+			position = parent;
+		}
+		place(item, priority, position);
+	}
+
+	private void siftDown(int position){
+		int item = items[position];
+		float priority = priorities[position];
+		int half = size >>> 1;
+
+		while (position < half){
+			int child = 2*position + 1;
+			if (child + 1 < size && priorities[child + 1] < priorities[child])
+				child++;
+			if (priority <= priorities[child])
+				break;
+
+			move(child, position);
+			position = child;
+		}
+		place(item, priority, position);
+	}
+
+	private void move(int from, int to){
+		items[to] = items[from];
+		priorities[to] = priorities[from];
+		positions[items[to]] = to;
+	}
+
+	private void place(int item, float priority, int position){
+		items[position] = item;
+		priorities[position] = priority;
+		positions[item] = position;
+	}
+}
@@ -0,0 +1,42 @@
+package com.johnathongoss.libgdxtests.hex;
+
+/**
+ * What it costs to enter a cell, by terrain type. A table per kind of unit
+ * (walking, flying, ...) lets the same map answer each differently.
+ *
+ * Every terrain starts at 1. BLOCKED cells can't be entered.
+ */
+public class MoveCosts {
+
+	public static final float BLOCKED = Float.POSITIVE_INFINITY;
+
+	private final float[] costs = new float[256];
+	private float min = 1;
+
+	public MoveCosts() {
+		for (int i = 0; i < costs.length; i++)
+			costs[i] = 1;
+	}
+
+	/** cost must be positive, or BLOCKED. **/
+	public MoveCosts set(int terrain, float cost){
+		if (!(cost > 0))
+			throw new IllegalArgumentException("Move cost must be positive: " + cost);
+
+		costs[terrain & 0xff] = cost;
+
+		min = BLOCKED;
+		for (int i = 0; i < costs.length; i++)
+			min = Math.min(min, costs[i]);
+		return this;
+	}
+
+	public float get(int terrain){
+		return costs[terrain & 0xff];
+	}
+
+	/** Cheapest step, what A* multiplies distances by to stay admissible. **/
+	public float getMin(){
+		return min;
+	}
+}
@@ -0,0 +1,175 @@
+package com.johnathongoss.libgdxtests.particles;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.OrthographicCamera;
+import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.ObjectMap;
+
+/**
+ * CPU estimate of fill rate. Sums the screen space area of every quad submitted
+ * in a frame, per tag (effect type, sprite layer...), and compares it with the
+ * screen area. Quads are not clipped to the screen, so this is an upper bound.
+ */
+public class FillRateMeter {
+
+	/** Default overdraw a device is expected to handle, in screens per frame. **/
+	public static final float DEFAULT_BUDGET = 4f;
+
+	public static class Entry {
+		public final String tag;
+		public int quads;
+		public float pixels, peakPixels;
+		public long frames;
+		public double totalPixels;
+
+		Entry(String tag){
+			this.tag = tag;
+		}
+
+		public float getAveragePixels(){
+			return frames == 0 ? 0 : (float)(totalPixels / frames);
+		}
+	}
+
+	private final ObjectMap<String, Entry> entries = new ObjectMap<String, Entry>();
+	private final Array<Entry> order = new Array<Entry>();
+	private Entry current;
+	private float pixelScale = 1, screenPixels = 1, budget = DEFAULT_BUDGET;
+	private int quads;
+	private float pixels, peakPixels;
+
+	public FillRateMeter() {
+		setTag("Other");
+	}
+
+	/** Starts a new frame. Call before drawing anything. **/
+	public void begin(float screenWidth, float screenHeight){
+		screenPixels = Math.max(1, screenWidth*screenHeight);
+		quads = 0;
+		pixels = 0;
+
+		for (int i = 0; i < order.size; i++){
+			order.get(i).quads = 0;
+			order.get(i).pixels = 0;
+		}
+	}
+
+	/** Closes the frame so averages and peaks are updated. **/
+	public void end(){
+		if (pixels > peakPixels)
+			peakPixels = pixels;
+
+		for (int i = 0; i < order.size; i++){
+			Entry entry = order.get(i);
+			if (entry.quads == 0)
+				continue;
+			entry.frames++;
+			entry.totalPixels += entry.pixels;
+			if (entry.pixels > entry.peakPixels)
+				entry.peakPixels = entry.pixels;
+		}
+	}
+
+	public void setTag(String tag){
+		current = entries.get(tag);
+		if (current == null){
+			current = new Entry(tag);
+			entries.put(tag, current);
+			order.add(current);
+		}
+	}
+
+	/** Screen pixels per world unit along one axis. **/
+	public void setPixelScale(float pixelScale){
+		this.pixelScale = pixelScale;
+	}
+
+	public void setPixelScale(OrthographicCamera cam){
+		setPixelScale(Gdx.graphics.getWidth() / (cam.viewportWidth*cam.zoom));
+	}
+
+	public void setBudget(float overdraw){
+		budget = overdraw;
+	}
+
+	public void add(float worldWidth, float worldHeight){
+		add(Math.abs(worldWidth*worldHeight));
+	}
+
+	/** Adds a sprite quad in {@link Batch} vertex layout. **/
+	public void addQuad(float[] vertices, int offset){
+		float x1 = vertices[offset + Batch.X1], y1 = vertices[offset + Batch.Y1];
+		float ex = vertices[offset + Batch.X4] - x1, ey = vertices[offset + Batch.Y4] - y1;
+		float fx = vertices[offset + Batch.X2] - x1, fy = vertices[offset + Batch.Y2] - y1;
+		add(Math.abs(ex*fy - ey*fx));
+	}
+
+	private void add(float worldArea){
+		float area = worldArea*pixelScale*pixelScale;
+		quads++;
+		pixels += area;
+		current.quads++;
+		current.pixels += area;
+	}
+
+	public int getQuads(){
+		return quads;
+	}
+
+	public float getPixels(){
+		return pixels;
+	}
+
+	/** Screens worth of pixels filled this frame. **/
+	public float getOverdraw(){
+		return pixels / screenPixels;
+	}
+
+	public float getOverdraw(Entry entry){
+		return entry.pixels / screenPixels;
+	}
+
+	public float getPeakOverdraw(){
+		return peakPixels / screenPixels;
+	}
+
+	public boolean isOverBudget(){
+		return getOverdraw() > budget;
+	}
+
+	public Array<Entry> getEntries(){
+		return order;
+	}
+
+	/** One line per tag drawn this frame, for the debug overlays. **/
+	public void report(Array<String> lines){
+		lines.add("Fill: " + format(getOverdraw()) + "x" + (isOverBudget() ? " OVER" : "") + " |");
+
+		for (int i = 0; i < order.size; i++){
+			Entry entry = order.get(i);
+			if (entry.quads > 0)
+				lines.add(entry.tag + ": " + format(getOverdraw(entry)) + "x, " + entry.quads + " quads |");
+		}
+	}
+
+	/** Summary of the whole run, for logs and benchmarks. **/
+	public String summary(){
+		StringBuilder builder = new StringBuilder();
+		builder.append("peak ").append(format(getPeakOverdraw())).append("x, budget ").append(format(budget)).append("x");
+
+		for (int i = 0; i < order.size; i++){
+			Entry entry = order.get(i);
+			if (entry.frames == 0)
+				continue;
+			builder.append("\n  ").append(entry.tag)
+			.append(": avg ").append(format(entry.getAveragePixels() / screenPixels))
+			.append("x, peak ").append(format(entry.peakPixels / screenPixels)).append("x");
+		}
+		return builder.toString();
+	}
+
+	private static String format(float value){
+		return String.valueOf(Math.round(value*100) / 100f);
+	}
+}
@@ -0,0 +1,226 @@
+package com.johnathongoss.libgdxtests.particles;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Random;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Pixmap.Blending;
+import com.badlogic.gdx.graphics.Pixmap.Format;
+import com.badlogic.gdx.graphics.PixmapIO;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.ParticleEffect;
+import com.badlogic.gdx.graphics.g2d.ParticleEmitter;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.utils.Array;
+
+/**
+ * Bakes a one-shot ParticleEffect into a {@link ParticleFlipbook}. The effect is
+ * simulated twice with the same seed: once to find its bounds and once to
+ * rasterise every frame on the CPU with a {@link RasterBatch}.
+ *
+ * Baked sheets are saved to local storage (fx/baked) on first run and reused
+ * until the .p file changes.
+ */
+public class FlipbookBaker {
+
+	public static final float FRAME_TIME = 1/30f;
+	public static final float MAX_TIME = 5f;
+	public static final int MAX_FRAMES = 64;
+	public static final int MAX_FRAME_SIZE = 128;
+	public static final long SEED = 1337;
+
+	private static final int VERSION = 1;
+
+	/**
+	 * Loads the baked sheet for effectFile from local storage, or bakes it from template
+	 * (a loaded effect, so its textures exist) and saves the result.
+	 */
+	public static ParticleFlipbook load(FileHandle effectFile, ParticleEffect template, FileHandle imagesDir){
+
+		String key = VERSION + "_" + effectFile.readString().hashCode();
+		FileHandle png = null, meta = null;
+
+		if (Gdx.files.isLocalStorageAvailable()){
+			png = Gdx.files.local("fx/baked/" + effectFile.nameWithoutExtension() + ".png");
+			meta = Gdx.files.local("fx/baked/" + effectFile.nameWithoutExtension() + ".txt");
+
+			if (png.exists() && meta.exists()){
+				String[] values = meta.readString().trim().split(" ");
+				if (values.length == 11 && values[0].equals(key))
+					return create(new Texture(png), values);
+			}
+		}
+
+		Baked baked = bake(template, imagesDir);
+		if (baked == null)
+			return null;
+
+		boolean saved = false;
+		if (png != null){
+			try {
+				PixmapIO.writePNG(png, baked.sheet);
+				meta.writeString(key + " " + baked, false);
+				saved = true;
+			} catch (Exception e) {
+				Gdx.app.log("FlipbookBaker", "Could not save " + png.path() + ": " + e.getMessage());
+			}
+		}
+
+		// A texture from the saved file is managed, so it comes back after a context loss
+		ParticleFlipbook flipbook = create(saved ? new Texture(png) : new Texture(baked.sheet), (key + " " + baked).split(" "));
+		baked.sheet.dispose();
+		return flipbook;
+	}
+
+	private static ParticleFlipbook create(Texture texture, String[] v){
+		return new ParticleFlipbook(texture,
+				Integer.parseInt(v[1]), Integer.parseInt(v[2]), Integer.parseInt(v[3]), Integer.parseInt(v[4]),
+				Float.parseFloat(v[5]),
+				Float.parseFloat(v[6]), Float.parseFloat(v[7]), Float.parseFloat(v[8]), Float.parseFloat(v[9]),
+				Boolean.parseBoolean(v[10]));
+	}
+
+	static class Baked {
+		Pixmap sheet;
+		int frames, columns, frameWidth, frameHeight;
+		float frameDuration, minX, minY, maxX, maxY;
+		boolean additive;
+
+		@Override
+		public String toString() {
+			return frames + " " + columns + " " + frameWidth + " " + frameHeight + " " + frameDuration + " "
+					+ minX + " " + minY + " " + maxX + " " + maxY + " " + additive;
+		}
+	}
+
+	/**
+	 * Returns null if the effect never draws anything. Emitters draw their numbers
+	 * from MathUtils.random, so it is swapped for a generator seeded with SEED
+	 * while baking and put back after, leaving the game's own sequence alone.
+	 */
+	static Baked bake(ParticleEffect template, FileHandle imagesDir){
+		Random random = MathUtils.random;
+		try {
+			return bake(template, imagesDir, new Random());
+		} finally {
+			MathUtils.random = random;
+		}
+	}
+
+	private static Baked bake(ParticleEffect template, FileHandle imagesDir, Random random){
+		MathUtils.random = random;
+
+		RasterBatch raster = new RasterBatch();
+		boolean additive = true;
+
+		Array<ParticleEmitter> emitters = template.getEmitters();
+		for (int i = 0; i < emitters.size; i++){
+			ParticleEmitter emitter = emitters.get(i);
+			additive &= emitter.isAdditive();
+
+			if (emitter.getSprite() == null || emitter.getImagePath() == null)
+				continue;
+
+			String imageName = new File(emitter.getImagePath().replace('\\', '/')).getName();
+			Pixmap pixmap = new Pixmap(imagesDir.child(imageName));
+			raster.addSource(emitter.getSprite().getTexture(), pixmap);
+			pixmap.dispose();
+		}
+
+		// Pass 1, bounds and length
+		random.setSeed(SEED);
+		ParticleEffect effect = oneShot(template);
+		raster.resetBounds();
+		int steps = 0;
+		while (!effect.isComplete() && steps*FRAME_TIME < MAX_TIME){
+			effect.update(FRAME_TIME);
+			effect.draw(raster);
+			steps++;
+		}
+
+		if (!raster.hasBounds())
+			return null;
+
+		Baked baked = new Baked();
+		baked.additive = additive;
+		baked.minX = raster.minX;
+		baked.minY = raster.minY;
+		baked.maxX = raster.maxX;
+		baked.maxY = raster.maxY;
+
+		int stride = (steps + MAX_FRAMES - 1) / MAX_FRAMES;
+		float scale = Math.min(1, MAX_FRAME_SIZE / Math.max(baked.maxX - baked.minX, baked.maxY - baked.minY));
+
+		baked.frames = (steps + stride - 1) / stride;
+		baked.frameDuration = FRAME_TIME*stride;
+		baked.frameWidth = Math.max(1, MathUtils.ceil((baked.maxX - baked.minX)*scale));
+		baked.frameHeight = Math.max(1, MathUtils.ceil((baked.maxY - baked.minY)*scale));
+		baked.columns = MathUtils.ceil((float)Math.sqrt(baked.frames));
+		int rows = (baked.frames + baked.columns - 1) / baked.columns;
+
+		Blending blending = Pixmap.getBlending();
+		Pixmap.setBlending(Blending.None);
+		baked.sheet = new Pixmap(baked.columns*baked.frameWidth, rows*baked.frameHeight, Format.RGBA8888);
+
+		// Pass 2, same seed so the particles retrace pass 1
+		random.setSeed(SEED);
+		effect = oneShot(template);
+		float[] buffer = new float[baked.frameWidth*baked.frameHeight*4];
+		raster.setTarget(buffer, baked.frameWidth, baked.frameHeight, baked.minX, baked.maxY, scale);
+
+		for (int step = 0, frame = 0; step < steps; step++){
+			effect.update(FRAME_TIME);
+
+			if (step % stride != 0)
+				continue;
+
+			Arrays.fill(buffer, 0);
+			effect.draw(raster);
+			write(buffer, baked, frame++);
+		}
+
+		Pixmap.setBlending(blending);
+		raster.dispose();
+
+		return baked;
+	}
+
+	private static ParticleEffect oneShot(ParticleEffect template){
+		ParticleEffect effect = new ParticleEffect(template);
+		for (int i = 0; i < effect.getEmitters().size; i++)
+			effect.getEmitters().get(i).setContinuous(false);
+		effect.setPosition(0, 0);
+		effect.start();
+		return effect;
+	}
+
+	private static void write(float[] buffer, Baked baked, int frame){
+		int ox = (frame % baked.columns)*baked.frameWidth;
+		int oy = (frame / baked.columns)*baked.frameHeight;
+
+		for (int y = 0; y < baked.frameHeight; y++){
+			for (int x = 0; x < baked.frameWidth; x++){
+				int i = (y*baked.frameWidth + x)*4;
+				float r = buffer[i], g = buffer[i + 1], b = buffer[i + 2], a = buffer[i + 3];
+
+				// Additive sheets are drawn with (SRC_ALPHA, ONE), so store the summed
+				// colour as colour/alpha with alpha = brightest channel.
+				if (baked.additive)
+					a = Math.max(r, Math.max(g, b));
+
+				a = Math.min(1, a);
+				if (a > 0){
+					r = Math.min(1, r / a);
+					g = Math.min(1, g / a);
+					b = Math.min(1, b / a);
+				}
+
+				baked.sheet.drawPixel(ox + x, oy + y,
+						((int)(r*255) << 24) | ((int)(g*255) << 16) | ((int)(b*255) << 8) | (int)(a*255));
+			}
+		}
+	}
+}
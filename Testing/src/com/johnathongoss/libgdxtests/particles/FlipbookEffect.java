@@ -0,0 +1,53 @@
+package com.johnathongoss.libgdxtests.particles;
+
+import com.badlogic.gdx.graphics.GL10;
+import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.utils.Pool.Poolable;
+
+/**
+ * A playing instance of a {@link ParticleFlipbook}. Costs one quad per frame
+ * no matter how many particles the original effect had.
+ */
+public class FlipbookEffect implements Poolable {
+
+	ParticleFlipbook flipbook;
+	float x, y, stateTime;
+	public int type;
+
+	public void start(ParticleFlipbook flipbook, int type){
+		this.flipbook = flipbook;
+		this.type = type;
+		stateTime = 0;
+	}
+
+	public void setPosition(float x, float y){
+		this.x = x;
+		this.y = y;
+	}
+
+	public void draw(Batch batch, float delta){
+		stateTime += delta;
+
+		if (isComplete())
+			return;
+
+		if (flipbook.additive)
+			batch.setBlendFunction(GL10.GL_SRC_ALPHA, GL10.GL_ONE);
+
+		batch.draw(flipbook.animation.getKeyFrame(stateTime, false),
+				x + flipbook.minX, y + flipbook.minY, flipbook.getWidth(), flipbook.getHeight());
+
+		if (flipbook.additive)
+			batch.setBlendFunction(GL10.GL_SRC_ALPHA, GL10.GL_ONE_MINUS_SRC_ALPHA);
+	}
+
+	public boolean isComplete(){
+		return stateTime >= flipbook.getDuration();
+	}
+
+	@Override
+	public void reset() {
+		flipbook = null;
+		stateTime = 0;
+	}
+}
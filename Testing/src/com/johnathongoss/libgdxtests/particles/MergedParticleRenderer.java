@@ -0,0 +1,108 @@
+package com.johnathongoss.libgdxtests.particles;
+
+import com.badlogic.gdx.graphics.GL10;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.graphics.g2d.ParticleEffect;
+import com.badlogic.gdx.graphics.g2d.ParticleEmitter;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Pool;
+
+/**
+ * Draws the emitters of many effects grouped by texture and blend mode, so each
+ * group goes out in one flush instead of one (or two, for additive emitters)
+ * per effect. Groups keep the order in which they were first seen, emitters
+ * keep their order inside a group.
+ *
+ * Usage per frame: begin(), add() every live effect (already updated), draw().
+ */
+public class MergedParticleRenderer {
+
+	static class Group {
+		Texture texture;
+		boolean additive;
+		final Array<ParticleEmitter> emitters = new Array<ParticleEmitter>();
+		final Array<String> tags = new Array<String>();
+	}
+
+	private final Array<Group> groups = new Array<Group>();
+	private final Pool<Group> groupPool = new Pool<Group>() {
+		@Override
+		protected Group newObject() {
+			return new Group();
+		}
+	};
+
+	private FillRateMeter meter;
+
+	/** Optional, tags are passed on per emitter while drawing. **/
+	public void setMeter(FillRateMeter meter){
+		this.meter = meter;
+	}
+
+	public void begin(){
+		for (int i = 0; i < groups.size; i++){
+			Group group = groups.get(i);
+			group.emitters.clear();
+			group.tags.clear();
+			group.texture = null;
+			groupPool.free(group);
+		}
+		groups.clear();
+	}
+
+	public void add(ParticleEffect effect, String tag){
+		Array<ParticleEmitter> emitters = effect.getEmitters();
+
+		for (int i = 0; i < emitters.size; i++){
+			ParticleEmitter emitter = emitters.get(i);
+			if (emitter.getActiveCount() == 0 || emitter.getSprite() == null)
+				continue;
+
+			Group group = getGroup(emitter.getSprite().getTexture(), emitter.isAdditive());
+			group.emitters.add(emitter);
+			group.tags.add(tag);
+		}
+	}
+
+	private Group getGroup(Texture texture, boolean additive){
+		for (int i = 0; i < groups.size; i++){
+			Group group = groups.get(i);
+			if (group.texture == texture && group.additive == additive)
+				return group;
+		}
+
+		Group group = groupPool.obtain();
+		group.texture = texture;
+		group.additive = additive;
+		groups.add(group);
+		return group;
+	}
+
+	public void draw(Batch batch){
+		for (int i = 0; i < groups.size; i++){
+			Group group = groups.get(i);
+
+			batch.setBlendFunction(GL10.GL_SRC_ALPHA, group.additive ? GL10.GL_ONE : GL10.GL_ONE_MINUS_SRC_ALPHA);
+
+			for (int j = 0; j < group.emitters.size; j++){
+				ParticleEmitter emitter = group.emitters.get(j);
+
+				if (meter != null)
+					meter.setTag(group.tags.get(j));
+
+				// The emitter would switch the blend function (and flush) around itself
+				emitter.setAdditive(false);
+				emitter.draw(batch);
+				emitter.setAdditive(group.additive);
+			}
+		}
+
+		batch.setBlendFunction(GL10.GL_SRC_ALPHA, GL10.GL_ONE_MINUS_SRC_ALPHA);
+	}
+
+	/** Number of texture/blend groups, ie. the draw calls the particles cost this frame. **/
+	public int getGroupCount(){
+		return groups.size;
+	}
+}
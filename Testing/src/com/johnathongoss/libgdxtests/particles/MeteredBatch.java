@@ -0,0 +1,84 @@
+package com.johnathongoss.libgdxtests.particles;
+
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+
+/**
+ * SpriteBatch that reports the area of every quad it draws to a {@link FillRateMeter}.
+ */
+public class MeteredBatch extends SpriteBatch {
+
+	public final FillRateMeter meter;
+
+	public MeteredBatch(FillRateMeter meter) {
+		this.meter = meter;
+	}
+
+	@Override
+	public void draw(Texture texture, float x, float y, float originX, float originY, float width, float height,
+			float scaleX, float scaleY, float rotation, int srcX, int srcY, int srcWidth, int srcHeight, boolean flipX, boolean flipY) {
+		meter.add(width*scaleX, height*scaleY);
+		super.draw(texture, x, y, originX, originY, width, height, scaleX, scaleY, rotation, srcX, srcY, srcWidth, srcHeight, flipX, flipY);
+	}
+
+	@Override
+	public void draw(Texture texture, float x, float y, float width, float height, int srcX, int srcY, int srcWidth,
+			int srcHeight, boolean flipX, boolean flipY) {
+		meter.add(width, height);
+		super.draw(texture, x, y, width, height, srcX, srcY, srcWidth, srcHeight, flipX, flipY);
+	}
+
+	@Override
+	public void draw(Texture texture, float x, float y, int srcX, int srcY, int srcWidth, int srcHeight) {
+		meter.add(srcWidth, srcHeight);
+		super.draw(texture, x, y, srcX, srcY, srcWidth, srcHeight);
+	}
+
+	@Override
+	public void draw(Texture texture, float x, float y, float width, float height, float u, float v, float u2, float v2) {
+		meter.add(width, height);
+		super.draw(texture, x, y, width, height, u, v, u2, v2);
+	}
+
+	@Override
+	public void draw(Texture texture, float x, float y) {
+		meter.add(texture.getWidth(), texture.getHeight());
+		super.draw(texture, x, y);
+	}
+
+	@Override
+	public void draw(Texture texture, float x, float y, float width, float height) {
+		meter.add(width, height);
+		super.draw(texture, x, y, width, height);
+	}
+
+	@Override
+	public void draw(Texture texture, float[] spriteVertices, int offset, int count) {
+		for (int i = offset; i + RasterBatch.SPRITE_SIZE <= offset + count; i += RasterBatch.SPRITE_SIZE)
+			meter.addQuad(spriteVertices, i);
+		super.draw(texture, spriteVertices, offset, count);
+	}
+
+	// draw(TextureRegion, x, y) forwards to the sized version below
+
+	@Override
+	public void draw(TextureRegion region, float x, float y, float width, float height) {
+		meter.add(width, height);
+		super.draw(region, x, y, width, height);
+	}
+
+	@Override
+	public void draw(TextureRegion region, float x, float y, float originX, float originY, float width, float height,
+			float scaleX, float scaleY, float rotation) {
+		meter.add(width*scaleX, height*scaleY);
+		super.draw(region, x, y, originX, originY, width, height, scaleX, scaleY, rotation);
+	}
+
+	@Override
+	public void draw(TextureRegion region, float x, float y, float originX, float originY, float width, float height,
+			float scaleX, float scaleY, float rotation, boolean clockwise) {
+		meter.add(width*scaleX, height*scaleY);
+		super.draw(region, x, y, originX, originY, width, height, scaleX, scaleY, rotation, clockwise);
+	}
+}
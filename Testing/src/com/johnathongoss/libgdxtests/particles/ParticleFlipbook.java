@@ -0,0 +1,53 @@
+package com.johnathongoss.libgdxtests.particles;
+
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.Animation;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Disposable;
+
+/**
+ * A one-shot particle effect baked into a sheet of frames by {@link FlipbookBaker}.
+ * Frames cover the effect bounds (minX, minY) - (maxX, maxY) relative to the
+ * emitter origin, so an instance is drawn as a single quad.
+ */
+public class ParticleFlipbook implements Disposable {
+
+	public final Texture texture;
+	public final Animation animation;
+	public final float minX, minY, maxX, maxY;
+	public final boolean additive;
+
+	public ParticleFlipbook(Texture texture, int frames, int columns, int frameWidth, int frameHeight,
+			float frameDuration, float minX, float minY, float maxX, float maxY, boolean additive) {
+		this.texture = texture;
+		this.minX = minX;
+		this.minY = minY;
+		this.maxX = maxX;
+		this.maxY = maxY;
+		this.additive = additive;
+
+		Array<TextureRegion> regions = new Array<TextureRegion>(frames);
+		for (int i = 0; i < frames; i++)
+			regions.add(new TextureRegion(texture, (i % columns) * frameWidth, (i / columns) * frameHeight, frameWidth, frameHeight));
+
+		animation = new Animation(frameDuration, regions);
+	}
+
+	public float getWidth(){
+		return maxX - minX;
+	}
+
+	public float getHeight(){
+		return maxY - minY;
+	}
+
+	public float getDuration(){
+		return animation.animationDuration;
+	}
+
+	@Override
+	public void dispose() {
+		texture.dispose();
+	}
+}
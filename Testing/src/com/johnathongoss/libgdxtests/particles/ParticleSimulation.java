@@ -0,0 +1,250 @@
+package com.johnathongoss.libgdxtests.particles;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.graphics.g2d.ParticleEffect;
+import com.badlogic.gdx.graphics.g2d.ParticleEmitter;
+import com.badlogic.gdx.graphics.g2d.Sprite;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.StreamUtils;
+import com.badlogic.gdx.utils.TimeUtils;
+
+/**
+ * Runs particle definitions without a GL context. Emitters get texture-less
+ * sprites of the right size and draw into a {@link ProbeBatch} that records
+ * particle counts, bounds and an order independent checksum of every vertex.
+ *
+ * Runs are seeded, so two engines fed the same effects must produce the same
+ * {@link Stats}; that is what {@link #compare} checks against {@link #REFERENCE}.
+ */
+public class ParticleSimulation {
+
+	public static final float STEP = 1/60f;
+	public static final float SCREEN_WIDTH = 1280, SCREEN_HEIGHT = 720;
+
+	/** Updates and draws every live effect for one step. **/
+	public interface Engine {
+		public String getName();
+		public void step(Array<ParticleEffect> effects, float delta, Batch batch);
+	}
+
+	/** Plain ParticleEffect, one effect after another. **/
+	public static final Engine REFERENCE = new Engine() {
+		@Override
+		public String getName() {
+			return "Reference";
+		}
+
+		@Override
+		public void step(Array<ParticleEffect> effects, float delta, Batch batch) {
+			for (int i = 0; i < effects.size; i++){
+				effects.get(i).update(delta);
+				effects.get(i).draw(batch);
+			}
+		}
+	};
+
+	public static final Engine MERGED = new Engine() {
+		final MergedParticleRenderer renderer = new MergedParticleRenderer();
+
+		@Override
+		public String getName() {
+			return "Merged";
+		}
+
+		@Override
+		public void step(Array<ParticleEffect> effects, float delta, Batch batch) {
+			renderer.begin();
+			for (int i = 0; i < effects.size; i++){
+				effects.get(i).update(delta);
+				renderer.add(effects.get(i), "");
+			}
+			renderer.draw(batch);
+		}
+	};
+
+	public static class Stats {
+		public String effect, engine;
+		public int frames, peakCount;
+		public long totalCount, checksum, nanos;
+		public float minX, minY, maxX, maxY;
+		public String fill;
+
+		public float getAverageCount(){
+			return frames == 0 ? 0 : totalCount / (float)frames;
+		}
+
+		/** Simulated particles per second of wall time. **/
+		public float getThroughput(){
+			return nanos == 0 ? 0 : totalCount / (nanos / 1000000000f);
+		}
+
+		/** Everything but timing has to match. **/
+		public boolean matches(Stats other){
+			return frames == other.frames && peakCount == other.peakCount && totalCount == other.totalCount
+					&& checksum == other.checksum
+					&& minX == other.minX && minY == other.minY && maxX == other.maxX && maxY == other.maxY;
+		}
+
+		@Override
+		public String toString() {
+			return effect + " [" + engine + "] frames " + frames + ", peak " + peakCount
+					+ ", avg " + Math.round(getAverageCount())
+					+ ", bounds (" + Math.round(minX) + ", " + Math.round(minY) + ") - (" + Math.round(maxX) + ", " + Math.round(maxY) + ")"
+					+ ", checksum " + Long.toHexString(checksum)
+					+ ", " + Math.round(getThroughput()) + " particles/s"
+					+ "\n  fill " + fill;
+		}
+	}
+
+	/** Bounds, counts and checksums of everything drawn, see {@link RasterBatch}. **/
+	static class ProbeBatch extends RasterBatch {
+		final FillRateMeter meter = new FillRateMeter();
+		int quads;
+		long checksum;
+
+		@Override
+		public void draw(Texture texture, float[] spriteVertices, int offset, int count) {
+			for (int i = offset; i + SPRITE_SIZE <= offset + count; i += SPRITE_SIZE){
+				quads++;
+				meter.addQuad(spriteVertices, i);
+
+				// Sum of per vertex hashes, so draw order doesn't matter
+				for (int v = 0; v < 4; v++){
+					long hash = Float.floatToIntBits(spriteVertices[i + v*VERTEX_SIZE])*31L
+							+ Float.floatToIntBits(spriteVertices[i + v*VERTEX_SIZE + 1]);
+					checksum += hash*(v + 1);
+				}
+			}
+			super.draw(texture, spriteVertices, offset, count);
+		}
+	}
+
+	/**
+	 * Loads a .p file without textures. Each emitter gets an empty sprite sized
+	 * like its image, read from the PNG header in imagesDir.
+	 */
+	public static ParticleEffect loadDefinition(FileHandle effectFile, FileHandle imagesDir){
+		ParticleEffect effect = new ParticleEffect();
+		effect.loadEmitters(effectFile);
+
+		Array<ParticleEmitter> emitters = effect.getEmitters();
+		for (int i = 0; i < emitters.size; i++){
+			ParticleEmitter emitter = emitters.get(i);
+			String imagePath = emitter.getImagePath();
+			int[] size = imagePath == null ? new int[] {32, 32}
+					: pngSize(imagesDir.child(new File(imagePath.replace('\\', '/')).getName()));
+
+			Sprite sprite = new Sprite();
+			sprite.setSize(size[0], size[1]);
+			sprite.setOrigin(size[0]/2f, size[1]/2f);
+			emitter.setSprite(sprite);
+		}
+		return effect;
+	}
+
+	private static int[] pngSize(FileHandle file){
+		DataInputStream input = null;
+		try {
+			input = new DataInputStream(file.read());
+			input.skipBytes(16); // signature, IHDR length and type
+			return new int[] {input.readInt(), input.readInt()};
+		} catch (IOException e) {
+			return new int[] {32, 32};
+		} catch (GdxRuntimeException e) {
+			// Image missing, the effect is never loaded by the game with it either
+			return new int[] {32, 32};
+		} finally {
+			StreamUtils.closeQuietly(input);
+		}
+	}
+
+	/**
+	 * Simulates instances copies of definition spread over the screen for the
+	 * given time. Emitters draw their numbers from MathUtils.random, so it is
+	 * swapped for a generator seeded with seed and put back after, as
+	 * FlipbookBaker does.
+	 */
+	public static Stats run(ParticleEffect definition, String name, Engine engine, int instances, float seconds, long seed){
+		Random random = MathUtils.random;
+		try {
+			return run(definition, name, engine, instances, seconds, new Random(seed));
+		} finally {
+			MathUtils.random = random;
+		}
+	}
+
+	private static Stats run(ParticleEffect definition, String name, Engine engine, int instances, float seconds, Random random){
+		MathUtils.random = random;
+
+		Array<ParticleEffect> effects = new Array<ParticleEffect>();
+		for (int i = 0; i < instances; i++){
+			ParticleEffect effect = new ParticleEffect(definition);
+			effect.setPosition(SCREEN_WIDTH*(i + 1)/(instances + 1), SCREEN_HEIGHT/2);
+			effect.start();
+			effects.add(effect);
+		}
+
+		ProbeBatch probe = new ProbeBatch();
+		probe.resetBounds();
+
+		Stats stats = new Stats();
+		stats.effect = name;
+		stats.engine = engine.getName();
+
+		int steps = MathUtils.ceil(seconds / STEP);
+		long start = TimeUtils.nanoTime();
+
+		for (int step = 0; step < steps; step++){
+			probe.quads = 0;
+			probe.meter.begin(SCREEN_WIDTH, SCREEN_HEIGHT);
+			probe.meter.setTag(name);
+
+			engine.step(effects, STEP, probe);
+
+			probe.meter.end();
+			stats.frames++;
+			stats.totalCount += probe.quads;
+			stats.peakCount = Math.max(stats.peakCount, probe.quads);
+		}
+
+		stats.nanos = TimeUtils.nanoTime() - start;
+		stats.checksum = probe.checksum;
+		stats.fill = probe.meter.summary();
+		if (probe.hasBounds()){
+			stats.minX = probe.minX;
+			stats.minY = probe.minY;
+			stats.maxX = probe.maxX;
+			stats.maxY = probe.maxY;
+		}
+
+		return stats;
+	}
+
+	/**
+	 * Runs every engine on the definition and returns the stats, reference first.
+	 * Any engine that does not match the reference is reported in mismatches.
+	 */
+	public static Array<Stats> compare(ParticleEffect definition, String name, Array<Engine> engines,
+			int instances, float seconds, long seed, Array<String> mismatches){
+		Array<Stats> results = new Array<Stats>();
+		Stats reference = run(definition, name, REFERENCE, instances, seconds, seed);
+		results.add(reference);
+
+		for (int i = 0; i < engines.size; i++){
+			Stats stats = run(definition, name, engines.get(i), instances, seconds, seed);
+			results.add(stats);
+			if (!stats.matches(reference))
+				mismatches.add(name + ": " + stats.engine + " does not match " + reference.engine);
+		}
+		return results;
+	}
+}
@@ -0,0 +1,381 @@
+package com.johnathongoss.libgdxtests.particles;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.GL10;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.graphics.glutils.ShaderProgram;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.utils.NumberUtils;
+import com.badlogic.gdx.utils.ObjectMap;
+
+/**
+ * A CPU only {@link Batch} that rasterises sprite quads into a float RGBA buffer
+ * (premultiplied), sampling the CPU copies registered with addSource. With no
+ * target set it just grows the bounds of everything drawn.
+ */
+public class RasterBatch implements Batch {
+
+	static final int VERTEX_SIZE = 5, SPRITE_SIZE = 20;
+
+	private final ObjectMap<Texture, Source> sources = new ObjectMap<Texture, Source>();
+	private final Color color = new Color(1, 1, 1, 1);
+	private final Matrix4 projection = new Matrix4(), transform = new Matrix4();
+	private int blendSrc = GL10.GL_SRC_ALPHA, blendDst = GL10.GL_ONE_MINUS_SRC_ALPHA;
+	private boolean blending = true;
+
+	// Target
+	private float[] buffer;
+	private int width, height;
+	private float originX, originY, scale;
+
+	public float minX, minY, maxX, maxY;
+
+	static class Source {
+		final int[] pixels;
+		final int width, height;
+
+		Source(Pixmap pixmap){
+			width = pixmap.getWidth();
+			height = pixmap.getHeight();
+			pixels = new int[width*height];
+			for (int y = 0; y < height; y++)
+				for (int x = 0; x < width; x++)
+					pixels[y*width + x] = pixmap.getPixel(x, y);
+		}
+	}
+
+	/** Registers the CPU copy of a texture. The pixmap can be disposed afterwards. **/
+	public void addSource(Texture texture, Pixmap pixmap){
+		if (!sources.containsKey(texture))
+			sources.put(texture, new Source(pixmap));
+	}
+
+	public void resetBounds(){
+		minX = minY = Float.MAX_VALUE;
+		maxX = maxY = -Float.MAX_VALUE;
+	}
+
+	public boolean hasBounds(){
+		return minX <= maxX && minY <= maxY;
+	}
+
+	/**
+	 * Rasterise into buffer (width*height*4 floats). World point (originX, originY)
+	 * maps to the top left pixel, scale is pixels per world unit.
+	 */
+	public void setTarget(float[] buffer, int width, int height, float originX, float originY, float scale){
+		this.buffer = buffer;
+		this.width = width;
+		this.height = height;
+		this.originX = originX;
+		this.originY = originY;
+		this.scale = scale;
+	}
+
+	public void clearTarget(){
+		buffer = null;
+	}
+
+	@Override
+	public void draw(Texture texture, float[] spriteVertices, int offset, int count) {
+		for (int i = offset, n = offset + count; i + SPRITE_SIZE <= n; i += SPRITE_SIZE){
+			if (buffer == null)
+				grow(spriteVertices, i);
+			else
+				raster(sources.get(texture), spriteVertices, i);
+		}
+	}
+
+	private void grow(float[] v, int o) {
+		for (int i = 0; i < 4; i++){
+			float x = v[o + i*VERTEX_SIZE], y = v[o + i*VERTEX_SIZE + 1];
+			if (x < minX) minX = x;
+			if (x > maxX) maxX = x;
+			if (y < minY) minY = y;
+			if (y > maxY) maxY = y;
+		}
+	}
+
+	private void raster(Source source, float[] v, int o) {
+		if (source == null)
+			return;
+
+		float x1 = v[o + Batch.X1], y1 = v[o + Batch.Y1];
+		float ex = v[o + Batch.X4] - x1, ey = v[o + Batch.Y4] - y1; // bottom edge
+		float fx = v[o + Batch.X2] - x1, fy = v[o + Batch.Y2] - y1; // left edge
+		float det = ex*fy - ey*fx;
+		if (Math.abs(det) < 0.0001f)
+			return;
+
+		float u1 = v[o + Batch.U1], v1 = v[o + Batch.V1];
+		float du = v[o + Batch.U4] - u1, dv = v[o + Batch.V4] - v1;
+		float tu = v[o + Batch.U2] - u1, tv = v[o + Batch.V2] - v1;
+
+		int tint = NumberUtils.floatToIntColor(v[o + Batch.C1]);
+		float tr = (tint & 0xff) / 255f, tg = ((tint >>> 8) & 0xff) / 255f,
+				tb = ((tint >>> 16) & 0xff) / 255f, ta = ((tint >>> 24) & 0xff) / 255f;
+
+		boolean additive = blendDst == GL10.GL_ONE;
+
+		float qMinX = Math.min(Math.min(x1, x1 + ex), Math.min(x1 + fx, x1 + ex + fx));
+		float qMaxX = Math.max(Math.max(x1, x1 + ex), Math.max(x1 + fx, x1 + ex + fx));
+		float qMinY = Math.min(Math.min(y1, y1 + ey), Math.min(y1 + fy, y1 + ey + fy));
+		float qMaxY = Math.max(Math.max(y1, y1 + ey), Math.max(y1 + fy, y1 + ey + fy));
+
+		int px0 = Math.max(0, (int)((qMinX - originX)*scale));
+		int px1 = Math.min(width - 1, (int)((qMaxX - originX)*scale));
+		int py0 = Math.max(0, (int)((originY - qMaxY)*scale));
+		int py1 = Math.min(height - 1, (int)((originY - qMinY)*scale));
+
+		float[] buffer = this.buffer;
+		int[] pixels = source.pixels;
+
+		for (int py = py0; py <= py1; py++){
+			float wy = originY - (py + 0.5f)/scale - y1;
+
+			for (int px = px0; px <= px1; px++){
+				float wx = originX + (px + 0.5f)/scale - x1;
+
+				float s = (wx*fy - wy*fx)/det;
+				float t = (ex*wy - ey*wx)/det;
+				if (s < 0 || s > 1 || t < 0 || t > 1)
+					continue;
+
+				int sx = (int)((u1 + s*du + t*tu)*source.width);
+				int sy = (int)((v1 + s*dv + t*tv)*source.height);
+				if (sx < 0) sx = 0; else if (sx >= source.width) sx = source.width - 1;
+				if (sy < 0) sy = 0; else if (sy >= source.height) sy = source.height - 1;
+
+				int texel = pixels[sy*source.width + sx];
+				float a = (texel & 0xff) / 255f * ta;
+				if (a <= 0)
+					continue;
+
+				float r = (texel >>> 24) / 255f * tr * a;
+				float g = ((texel >>> 16) & 0xff) / 255f * tg * a;
+				float b = ((texel >>> 8) & 0xff) / 255f * tb * a;
+
+				int i = (py*width + px)*4;
+				if (additive){
+					buffer[i] += r;
+					buffer[i + 1] += g;
+					buffer[i + 2] += b;
+					buffer[i + 3] += a;
+				}
+				else{
+					float inv = 1 - a;
+					buffer[i] = r + buffer[i]*inv;
+					buffer[i + 1] = g + buffer[i + 1]*inv;
+					buffer[i + 2] = b + buffer[i + 2]*inv;
+					buffer[i + 3] = a + buffer[i + 3]*inv;
+				}
+			}
+		}
+	}
+
+	@Override
+	public void begin() {}
+
+	@Override
+	public void end() {}
+
+	@Override
+	public void flush() {}
+
+	@Override
+	public void dispose() {
+		sources.clear();
+	}
+
+	@Override
+	public void setColor(Color tint) {
+		color.set(tint);
+	}
+
+	@Override
+	public void setColor(float r, float g, float b, float a) {
+		color.set(r, g, b, a);
+	}
+
+	@Override
+	public void setColor(float color) {
+		int intBits = NumberUtils.floatToIntColor(color);
+		this.color.set((intBits & 0xff) / 255f, ((intBits >>> 8) & 0xff) / 255f,
+				((intBits >>> 16) & 0xff) / 255f, ((intBits >>> 24) & 0xff) / 255f);
+	}
+
+	@Override
+	public Color getColor() {
+		return color;
+	}
+
+	@Override
+	public void draw(TextureRegion region, float x, float y) {
+		draw(region, x, y, region.getRegionWidth(), region.getRegionHeight());
+	}
+
+	@Override
+	public void draw(TextureRegion region, float x, float y, float width, float height) {
+		draw(region.getTexture(), x, y, width, height, region.getU(), region.getV2(), region.getU2(), region.getV());
+	}
+
+	@Override
+	public void draw(Texture texture, float x, float y) {
+		draw(texture, x, y, texture.getWidth(), texture.getHeight());
+	}
+
+	@Override
+	public void draw(Texture texture, float x, float y, float width, float height) {
+		draw(texture, x, y, width, height, 0, 1, 1, 0);
+	}
+
+	private final float[] quad = new float[SPRITE_SIZE];
+
+	@Override
+	public void draw(Texture texture, float x, float y, float width, float height, float u, float v, float u2, float v2) {
+		float c = color.toFloatBits();
+		set(0, x, y, c, u, v);
+		set(1, x, y + height, c, u, v2);
+		set(2, x + width, y + height, c, u2, v2);
+		set(3, x + width, y, c, u2, v);
+		draw(texture, quad, 0, SPRITE_SIZE);
+	}
+
+	private void set(int vertex, float x, float y, float c, float u, float v){
+		int i = vertex*VERTEX_SIZE;
+		quad[i] = x;
+		quad[i + 1] = y;
+		quad[i + 2] = c;
+		quad[i + 3] = u;
+		quad[i + 4] = v;
+	}
+
+	@Override
+	public void draw(Texture texture, float x, float y, float originX, float originY, float width, float height,
+			float scaleX, float scaleY, float rotation, int srcX, int srcY, int srcWidth, int srcHeight, boolean flipX, boolean flipY) {
+		float invWidth = 1f/texture.getWidth(), invHeight = 1f/texture.getHeight();
+		float u = srcX*invWidth, v = (srcY + srcHeight)*invHeight;
+		float u2 = (srcX + srcWidth)*invWidth, v2 = srcY*invHeight;
+		if (flipX){
+			float swap = u;
+			u = u2;
+			u2 = swap;
+		}
+		if (flipY){
+			float swap = v;
+			v = v2;
+			v2 = swap;
+		}
+		draw(texture, x, y, originX, originY, width, height, scaleX, scaleY, rotation, u, v, u, v2, u2, v2, u2, v);
+	}
+
+	@Override
+	public void draw(Texture texture, float x, float y, float width, float height, int srcX, int srcY, int srcWidth,
+			int srcHeight, boolean flipX, boolean flipY) {
+		draw(texture, x, y, 0, 0, width, height, 1, 1, 0, srcX, srcY, srcWidth, srcHeight, flipX, flipY);
+	}
+
+	@Override
+	public void draw(Texture texture, float x, float y, int srcX, int srcY, int srcWidth, int srcHeight) {
+		draw(texture, x, y, 0, 0, srcWidth, srcHeight, 1, 1, 0, srcX, srcY, srcWidth, srcHeight, false, false);
+	}
+
+	@Override
+	public void draw(TextureRegion region, float x, float y, float originX, float originY, float width, float height,
+			float scaleX, float scaleY, float rotation) {
+		float u = region.getU(), v = region.getV2(), u2 = region.getU2(), v2 = region.getV();
+		draw(region.getTexture(), x, y, originX, originY, width, height, scaleX, scaleY, rotation, u, v, u, v2, u2, v2, u2, v);
+	}
+
+	/** clockwise turns the region's texture a quarter turn inside the quad, as SpriteBatch does. **/
+	@Override
+	public void draw(TextureRegion region, float x, float y, float originX, float originY, float width, float height,
+			float scaleX, float scaleY, float rotation, boolean clockwise) {
+		float u = region.getU(), v = region.getV(), u2 = region.getU2(), v2 = region.getV2();
+		if (clockwise)
+			draw(region.getTexture(), x, y, originX, originY, width, height, scaleX, scaleY, rotation, u2, v2, u, v2, u, v, u2, v);
+		else
+			draw(region.getTexture(), x, y, originX, originY, width, height, scaleX, scaleY, rotation, u, v, u2, v, u2, v2, u, v2);
+	}
+
+	/**
+	 * The quad x, y, width, height scaled and rotated about x + originX, y + originY,
+	 * texture coordinates given per corner from the bottom left, clockwise.
+	 */
+	private void draw(Texture texture, float x, float y, float originX, float originY, float width, float height,
+			float scaleX, float scaleY, float rotation, float u1, float v1, float u2, float v2, float u3, float v3, float u4, float v4) {
+		float left = -originX*scaleX, bottom = -originY*scaleY;
+		float right = (width - originX)*scaleX, top = (height - originY)*scaleY;
+		float worldX = x + originX, worldY = y + originY;
+		float cos = 1, sin = 0;
+		if (rotation != 0){
+			cos = MathUtils.cosDeg(rotation);
+			sin = MathUtils.sinDeg(rotation);
+		}
+
+		float c = color.toFloatBits();
+		set(0, worldX + cos*left - sin*bottom, worldY + sin*left + cos*bottom, c, u1, v1);
+		set(1, worldX + cos*left - sin*top, worldY + sin*left + cos*top, c, u2, v2);
+		set(2, worldX + cos*right - sin*top, worldY + sin*right + cos*top, c, u3, v3);
+		set(3, worldX + cos*right - sin*bottom, worldY + sin*right + cos*bottom, c, u4, v4);
+		draw(texture, quad, 0, SPRITE_SIZE);
+	}
+
+	@Override
+	public void disableBlending() {
+		blending = false;
+	}
+
+	@Override
+	public void enableBlending() {
+		blending = true;
+	}
+
+	@Override
+	public void setBlendFunction(int srcFunc, int dstFunc) {
+		blendSrc = srcFunc;
+		blendDst = dstFunc;
+	}
+
+	@Override
+	public int getBlendSrcFunc() {
+		return blendSrc;
+	}
+
+	@Override
+	public int getBlendDstFunc() {
+		return blendDst;
+	}
+
+	@Override
+	public Matrix4 getProjectionMatrix() {
+		return projection;
+	}
+
+	@Override
+	public Matrix4 getTransformMatrix() {
+		return transform;
+	}
+
+	@Override
+	public void setProjectionMatrix(Matrix4 projection) {
+		this.projection.set(projection);
+	}
+
+	@Override
+	public void setTransformMatrix(Matrix4 transform) {
+		this.transform.set(transform);
+	}
+
+	@Override
+	public void setShader(ShaderProgram shader) {}
+
+	@Override
+	public boolean isBlendingEnabled() {
+		return blending;
+	}
+}
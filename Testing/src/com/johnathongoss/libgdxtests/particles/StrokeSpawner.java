@@ -0,0 +1,110 @@
+package com.johnathongoss.libgdxtests.particles;
+
+import com.badlogic.gdx.graphics.g2d.ParticleEffectPool;
+import com.badlogic.gdx.graphics.g2d.ParticleEffectPool.PooledEffect;
+import com.badlogic.gdx.graphics.g2d.ParticleEmitter;
+import com.badlogic.gdx.graphics.g2d.ParticleEmitter.ScaledNumericValue;
+import com.badlogic.gdx.graphics.g2d.ParticleEmitter.SpawnShape;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.FloatArray;
+import com.johnathongoss.libgdxtests.ParticleCache;
+
+/**
+ * Coalesces touch drag samples into one effect per frame. Instead of starting an
+ * effect per drag event, the samples collected during a frame become a single
+ * effect whose emitters spawn along a line from the first to the last sample,
+ * with emission scaled by the number of samples so the stroke looks as dense.
+ *
+ * Stroke effects come from their own pools since their emitters are modified.
+ */
+public class StrokeSpawner {
+
+	/** Upper bound for how many drag samples one stroke effect stands in for. **/
+	public static final int MAX_SAMPLES = 10;
+
+	private final FloatArray samples = new FloatArray();
+	private final ParticleEffectPool[] pools = new ParticleEffectPool[ParticleCache.TYPES];
+
+	public void add(float x, float y){
+		samples.add(x);
+		samples.add(y);
+	}
+
+	public int getSampleCount(){
+		return samples.size / 2;
+	}
+
+	public float getLastX(){
+		return samples.get(samples.size - 2);
+	}
+
+	public float getLastY(){
+		return samples.get(samples.size - 1);
+	}
+
+	public void clear(){
+		samples.clear();
+	}
+
+	/**
+	 * Starts one effect covering the samples added since the last call, or returns
+	 * null if there were none. Clears the samples.
+	 */
+	public PooledEffect spawn(int type, boolean continuous){
+		int count = getSampleCount();
+		if (count == 0)
+			return null;
+
+		if (pools[type] == null)
+			pools[type] = new ParticleEffectPool(ParticleCache.getTemplate(type), 0, 50);
+
+		float x = samples.get(0), y = samples.get(1);
+		float dx = getLastX() - x, dy = getLastY() - y;
+		int scale = Math.min(count, MAX_SAMPLES);
+
+		PooledEffect effect = pools[type].obtain();
+		Array<ParticleEmitter> emitters = effect.getEmitters();
+		Array<ParticleEmitter> template = ParticleCache.getTemplate(type).getEmitters();
+
+		for (int i = 0; i < emitters.size; i++){
+			ParticleEmitter emitter = emitters.get(i);
+			ParticleEmitter original = template.get(i);
+
+			// Only allocates the first time a pooled effect is used
+			if (emitter.getMaxParticleCount() < original.getMaxParticleCount()*MAX_SAMPLES)
+				emitter.setMaxParticleCount(original.getMaxParticleCount()*MAX_SAMPLES);
+
+			emitter.setMinParticleCount(original.getMinParticleCount()*scale);
+			scale(emitter.getEmission(), original.getEmission(), scale);
+
+			if (count > 1){
+				emitter.getSpawnShape().setShape(SpawnShape.line);
+				line(emitter.getSpawnWidth(), dx);
+				line(emitter.getSpawnHeight(), dy);
+			}
+			else{
+				emitter.getSpawnShape().setShape(original.getSpawnShape().getShape());
+				emitter.getSpawnWidth().load(original.getSpawnWidth());
+				emitter.getSpawnHeight().load(original.getSpawnHeight());
+			}
+
+			emitter.setContinuous(continuous);
+		}
+
+		effect.setPosition(x, y);
+		effect.start();
+		samples.clear();
+		return effect;
+	}
+
+	private static void scale(ScaledNumericValue value, ScaledNumericValue original, int scale){
+		value.setLow(original.getLowMin()*scale, original.getLowMax()*scale);
+		value.setHigh(original.getHighMin()*scale, original.getHighMax()*scale);
+	}
+
+	private static void line(ScaledNumericValue value, float length){
+		value.setLow(length);
+		value.setHigh(length);
+		value.setRelative(false);
+	}
+}
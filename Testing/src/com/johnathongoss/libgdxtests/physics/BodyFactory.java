@@ -0,0 +1,214 @@
+package com.johnathongoss.libgdxtests.physics;
+
+import com.badlogic.gdx.graphics.g2d.Sprite;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.physics.box2d.Body;
+import com.badlogic.gdx.physics.box2d.BodyDef;
+import com.badlogic.gdx.physics.box2d.BodyDef.BodyType;
+import com.badlogic.gdx.physics.box2d.CircleShape;
+import com.badlogic.gdx.physics.box2d.FixtureDef;
+import com.badlogic.gdx.physics.box2d.PolygonShape;
+import com.badlogic.gdx.physics.box2d.World;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.ObjectMap;
+
+/**
+ * Creates dynamic bodies from {@link Template}s and recycles them. A freed body
+ * is only deactivated (setActive(false) takes it out of the broad-phase) and
+ * keeps its fixture and sprite, so the next obtain of the same template just
+ * moves it and switches it back on. Nothing is allocated and no shape is
+ * created or disposed once a template has enough bodies in its free list.
+ *
+ * New bodies share one CircleShape and one PolygonShape, reconfigured per
+ * template, which are disposed with the factory.
+ */
+public class BodyFactory {
+
+	public static final int CIRCLE = 0, BOX = 1, POLYGON = 2, SHAPE = 3;
+
+	/** What a body looks like. Bodies are only recycled within the same template. **/
+	public static class Template {
+		public final int shape;
+		/** Box2D units. Diameter for circles, bounding size for polygons. **/
+		public final float width, height;
+		public float density = 1, friction = 0.3f, restitution = 0.2f;
+		public TextureRegion region;
+
+		final float[] vertices;
+		final BodyShape bodyShape;
+		final float scale;
+		final Array<Body> free = new Array<Body>();
+
+		private Template(int shape, float width, float height, float[] vertices, BodyShape bodyShape, float scale) {
+			this.shape = shape;
+			this.width = width;
+			this.height = height;
+			this.vertices = vertices;
+			this.bodyShape = bodyShape;
+			this.scale = scale;
+		}
+
+		public int getFreeCount(){
+			return free.size;
+		}
+	}
+
+	public static Template circle(float radius, TextureRegion region){
+		Template template = new Template(CIRCLE, radius*2, radius*2, null, null, 1);
+		template.region = region;
+		return template;
+	}
+
+	public static Template box(float width, float height, TextureRegion region){
+		Template template = new Template(BOX, width, height, null, null, 1);
+		template.region = region;
+		return template;
+	}
+
+	/** vertices are x, y pairs around the body origin, at most 8 points. **/
+	public static Template polygon(float[] vertices, int count, TextureRegion region){
+		float[] copy = new float[count*2];
+		System.arraycopy(vertices, 0, copy, 0, count*2);
+
+		float size = 0;
+		for (int i = 0; i < copy.length; i++)
+			size = Math.max(size, Math.abs(copy[i]));
+
+		Template template = new Template(POLYGON, size*2, size*2, copy, null, 1);
+		template.region = region;
+		return template;
+	}
+
+	/**
+	 * A body-editor shape, scale is its width in box units. The sprite covers
+	 * the shape's bounds around the origin, and a region is drawn in the
+	 * shape's outline, see {@link ShapeSprite}.
+	 */
+	public static Template shape(BodyShape bodyShape, float scale, TextureRegion region){
+		float width = 2*Math.max(Math.abs(bodyShape.minX), Math.abs(bodyShape.maxX))*scale;
+		float height = 2*Math.max(Math.abs(bodyShape.minY), Math.abs(bodyShape.maxY))*scale;
+
+		Template template = new Template(SHAPE, width, height, null, bodyShape, scale);
+		template.region = region;
+		return template;
+	}
+
+	private final World world;
+	private final BodyRegistry registry;
+	private final BodyDef bodyDef = new BodyDef();
+	private final FixtureDef fixtureDef = new FixtureDef();
+	private final CircleShape circle = new CircleShape();
+	private final PolygonShape polygon = new PolygonShape();
+	private final Vector2 center = new Vector2();
+	private final ObjectMap<Body, Template> templates = new ObjectMap<Body, Template>();
+
+	private int created, reused;
+
+	/** registry is optional, obtained bodies are added to it and freed ones removed. **/
+	public BodyFactory(World world, BodyRegistry registry) {
+		this.world = world;
+		this.registry = registry;
+		bodyDef.type = BodyType.DynamicBody;
+	}
+
+	public Body obtain(Template template, float x, float y, float angle){
+		Body body;
+		Sprite sprite;
+
+		if (template.free.size > 0){
+			body = template.free.pop();
+			sprite = (Sprite)body.getUserData();
+
+			body.setTransform(x, y, angle);
+			body.setLinearVelocity(0, 0);
+			body.setAngularVelocity(0);
+			body.setActive(true);
+			body.setAwake(true);
+			reused++;
+		}
+		else{
+			body = create(template, x, y, angle);
+			if (template.region == null)
+				sprite = new Sprite();
+			else if (template.shape == SHAPE)
+				sprite = new ShapeSprite(template.bodyShape, template.scale, template.region);
+			else
+				sprite = new Sprite(template.region);
+			sprite.setSize(template.width, template.height);
+			sprite.setOrigin(template.width/2, template.height/2);
+
+			body.setUserData(sprite);
+			templates.put(body, template);
+			created++;
+		}
+
+		if (registry != null)
+			registry.add(body, sprite);
+		return body;
+	}
+
+	private Body create(Template template, float x, float y, float angle){
+		bodyDef.position.set(x, y);
+		bodyDef.angle = angle;
+
+		fixtureDef.density = template.density;
+		fixtureDef.friction = template.friction;
+		fixtureDef.restitution = template.restitution;
+
+		if (template.shape == SHAPE){
+			Body body = world.createBody(bodyDef);
+			template.bodyShape.attach(body, fixtureDef, template.scale, polygon, circle);
+			return body;
+		}
+
+		if (template.shape == CIRCLE){
+			// Shapes leave their circles off centre
+			circle.setPosition(center.set(0, 0));
+			circle.setRadius(template.width/2);
+			fixtureDef.shape = circle;
+		}
+		else if (template.shape == BOX){
+			polygon.setAsBox(template.width/2, template.height/2);
+			fixtureDef.shape = polygon;
+		}
+		else{
+			polygon.set(template.vertices);
+			fixtureDef.shape = polygon;
+		}
+
+		Body body = world.createBody(bodyDef);
+		body.createFixture(fixtureDef);
+		return body;
+	}
+
+	/** Deactivates a body obtained from this factory and keeps it for the next obtain. **/
+	public void free(Body body){
+		Template template = templates.get(body);
+		if (template == null)
+			throw new IllegalArgumentException("Body was not created by this factory");
+
+		if (registry != null)
+			registry.remove(body);
+
+		body.setActive(false);
+		template.free.add(body);
+	}
+
+	/** Bodies created from scratch so far. **/
+	public int getCreated(){
+		return created;
+	}
+
+	/** Obtains served from a free list so far. **/
+	public int getReused(){
+		return reused;
+	}
+
+	/** Disposes the shared shapes. Bodies belong to the World and go with it. **/
+	public void dispose(){
+		circle.dispose();
+		polygon.dispose();
+		templates.clear();
+	}
+}
@@ -0,0 +1,267 @@
+package com.johnathongoss.libgdxtests.physics;
+
+import com.badlogic.gdx.graphics.g2d.Sprite;
+import com.badlogic.gdx.physics.box2d.Body;
+import com.badlogic.gdx.physics.box2d.Fixture;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntArray;
+
+/**
+ * Java side copy of where the registry's bodies are, for picking and area
+ * queries without going through JNI for world.QueryAABB.
+ *
+ * update() runs after each step on the thread that steps the world. Every
+ * body becomes an oriented box the size of its sprite, i.e. what is drawn,
+ * and its AABB is put in a uniform grid. Queries return indices into this
+ * snapshot, see {@link #getBody(int)}; they are only valid until the next
+ * update and do not see bodies added since. Only pick() goes back to the
+ * fixtures, to test the point against the real shapes of the few bodies
+ * whose box it is in.
+ */
+public class BodyIndex {
+
+	private final float cellSize;
+
+	private Body[] bodies = new Body[64];
+	private float[] boxes = new float[64*BOX]; // x, y, cos, sin, half width, half height
+	private float[] bounds = new float[64*4]; // min x, min y, max x, max y
+	private int[] stamps = new int[64];
+	private int size, stamp;
+
+	private float originX, originY;
+	private int columns, rows;
+	private int[] cellStart = new int[1], cellItems = new int[64];
+
+	static final int BOX = 6;
+
+	/** cellSize in box units, about the size of a typical body works well. **/
+	public BodyIndex(float cellSize) {
+		this.cellSize = cellSize;
+	}
+
+	public void update(BodyRegistry registry){
+		size = registry.size();
+		ensureCapacity(size);
+
+		float minX = Float.MAX_VALUE, minY = Float.MAX_VALUE, maxX = -Float.MAX_VALUE, maxY = -Float.MAX_VALUE;
+		for (int i = 0; i < size; i++){
+			Sprite sprite = registry.getSprite(i);
+			float x = registry.getX(i), y = registry.getY(i), angle = registry.getAngle(i);
+			float cos = (float)Math.cos(angle), sin = (float)Math.sin(angle);
+			float halfWidth = sprite.getWidth()/2, halfHeight = sprite.getHeight()/2;
+
+			bodies[i] = registry.getBody(i);
+			int b = i*BOX;
+			boxes[b] = x;
+			boxes[b + 1] = y;
+			boxes[b + 2] = cos;
+			boxes[b + 3] = sin;
+			boxes[b + 4] = halfWidth;
+			boxes[b + 5] = halfHeight;
+
+			float extentX = halfWidth*Math.abs(cos) + halfHeight*Math.abs(sin);
+			float extentY = halfWidth*Math.abs(sin) + halfHeight*Math.abs(cos);
+			int o = i*4;
+			bounds[o] = x - extentX;
+			bounds[o + 1] = y - extentY;
+			bounds[o + 2] = x + extentX;
+			bounds[o + 3] = y + extentY;
+
+			minX = Math.min(minX, bounds[o]);
+			minY = Math.min(minY, bounds[o + 1]);
+			maxX = Math.max(maxX, bounds[o + 2]);
+			maxY = Math.max(maxY, bounds[o + 3]);
+		}
+
+		for (int i = size; i < bodies.length && bodies[i] != null; i++)
+			bodies[i] = null;
+
+		buildGrid(minX, minY, maxX, maxY);
+	}
+
+	/** Counting sort of every body into the cells its AABB covers. **/
+	private void buildGrid(float minX, float minY, float maxX, float maxY){
+		if (size == 0){
+			columns = rows = 0;
+			return;
+		}
+
+		originX = minX;
+		originY = minY;
+		columns = Math.max(1, (int)((maxX - minX)/cellSize) + 1);
+		rows = Math.max(1, (int)((maxY - minY)/cellSize) + 1);
+
+		int cells = columns*rows;
+		if (cellStart.length < cells + 1)
+			cellStart = new int[cells + 1];
+		for (int c = 0; c <= cells; c++)
+			cellStart[c] = 0;
+
+		// Count, turn counts into start offsets, then fill
+		int total = 0;
+		for (int i = 0; i < size; i++){
+			int o = i*4;
+			int x0 = column(bounds[o]), y0 = row(bounds[o + 1]), x1 = column(bounds[o + 2]), y1 = row(bounds[o + 3]);
+			for (int y = y0; y <= y1; y++)
+				for (int x = x0; x <= x1; x++){
+					cellStart[y*columns + x + 1]++;
+					total++;
+				}
+		}
+
+		for (int c = 0; c < cells; c++)
+			cellStart[c + 1] += cellStart[c];
+
+		if (cellItems.length < total)
+			cellItems = new int[total*2];
+
+		for (int i = 0; i < size; i++){
+			int o = i*4;
+			int x0 = column(bounds[o]), y0 = row(bounds[o + 1]), x1 = column(bounds[o + 2]), y1 = row(bounds[o + 3]);
+			for (int y = y0; y <= y1; y++)
+				for (int x = x0; x <= x1; x++)
+					cellItems[cellStart[y*columns + x]++] = i;
+		}
+
+		// Filling moved every start to the next cell's start, shift back
+		for (int c = cells; c > 0; c--)
+			cellStart[c] = cellStart[c - 1];
+		cellStart[0] = 0;
+	}
+
+	private int column(float x){
+		return Math.min(columns - 1, Math.max(0, (int)((x - originX)/cellSize)));
+	}
+
+	private int row(float y){
+		return Math.min(rows - 1, Math.max(0, (int)((y - originY)/cellSize)));
+	}
+
+	/** Bodies whose drawn box contains x, y, in draw order. **/
+	public IntArray queryPoint(float x, float y, IntArray results){
+		results.clear();
+		if (size == 0 || x < originX || y < originY)
+			return results;
+
+		int column = (int)((x - originX)/cellSize), row = (int)((y - originY)/cellSize);
+		if (column >= columns || row >= rows)
+			return results;
+
+		int cell = row*columns + column;
+		for (int n = cellStart[cell]; n < cellStart[cell + 1]; n++){
+			int i = cellItems[n];
+			if (contains(i, x, y))
+				results.add(i);
+		}
+		results.sort();
+		return results;
+	}
+
+	/**
+	 * The active body drawn on top whose fixtures contain x, y, or null.
+	 * Calls into the world, so only on the thread that steps it.
+	 */
+	public Body pick(float x, float y, IntArray scratch){
+		queryPoint(x, y, scratch);
+		for (int n = scratch.size - 1; n >= 0; n--){
+			Body body = bodies[scratch.get(n)];
+			// Freed bodies stay in the index until the next update
+			if (!body.isActive())
+				continue;
+
+			Array<Fixture> fixtures = body.getFixtureList();
+			for (int f = 0; f < fixtures.size; f++)
+				if (fixtures.get(f).testPoint(x, y))
+					return body;
+		}
+		return null;
+	}
+
+	/** Bodies whose AABB overlaps the given box. **/
+	public IntArray queryAABB(float minX, float minY, float maxX, float maxY, IntArray results){
+		results.clear();
+		if (size == 0 || maxX < originX || maxY < originY)
+			return results;
+
+		int x0 = column(minX), y0 = row(minY), x1 = column(maxX), y1 = row(maxY);
+		int stamp = nextStamp();
+
+		for (int y = y0; y <= y1; y++){
+			for (int x = x0; x <= x1; x++){
+				int cell = y*columns + x;
+				for (int n = cellStart[cell]; n < cellStart[cell + 1]; n++){
+					int i = cellItems[n];
+					if (stamps[i] == stamp)
+						continue;
+					stamps[i] = stamp;
+
+					int o = i*4;
+					if (bounds[o] <= maxX && bounds[o + 2] >= minX && bounds[o + 1] <= maxY && bounds[o + 3] >= minY)
+						results.add(i);
+				}
+			}
+		}
+		return results;
+	}
+
+	/** Bodies whose AABB comes within radius of x, y, eg. for area of effect. **/
+	public IntArray queryRadius(float x, float y, float radius, IntArray results){
+		queryAABB(x - radius, y - radius, x + radius, y + radius, results);
+
+		for (int n = results.size - 1; n >= 0; n--){
+			int o = results.get(n)*4;
+			float dx = Math.max(bounds[o] - x, Math.max(0, x - bounds[o + 2]));
+			float dy = Math.max(bounds[o + 1] - y, Math.max(0, y - bounds[o + 3]));
+			if (dx*dx + dy*dy > radius*radius)
+				results.removeIndex(n);
+		}
+		return results;
+	}
+
+	private int nextStamp(){
+		if (++stamp == Integer.MAX_VALUE){
+			stamp = 1;
+			for (int i = 0; i < stamps.length; i++)
+				stamps[i] = 0;
+		}
+		return stamp;
+	}
+
+	private boolean contains(int i, float x, float y){
+		int b = i*BOX;
+		float dx = x - boxes[b], dy = y - boxes[b + 1];
+		float cos = boxes[b + 2], sin = boxes[b + 3];
+
+		// Into the body's frame
+		float localX = dx*cos + dy*sin, localY = -dx*sin + dy*cos;
+		return Math.abs(localX) <= boxes[b + 4] && Math.abs(localY) <= boxes[b + 5];
+	}
+
+	public Body getBody(int index){
+		return bodies[index];
+	}
+
+	public int size(){
+		return size;
+	}
+
+	/** Collects the bodies for a list of query results. **/
+	public void getBodies(IntArray indices, Array<Body> out){
+		out.clear();
+		for (int i = 0; i < indices.size; i++)
+			out.add(bodies[indices.get(i)]);
+	}
+
+	private void ensureCapacity(int size){
+		if (bodies.length >= size)
+			return;
+
+		int capacity = Math.max(size, bodies.length*2);
+		Body[] bodies = new Body[capacity];
+		System.arraycopy(this.bodies, 0, bodies, 0, this.bodies.length);
+		this.bodies = bodies;
+		boxes = new float[capacity*BOX];
+		bounds = new float[capacity*4];
+		stamps = new int[capacity];
+	}
+}
@@ -0,0 +1,218 @@
+package com.johnathongoss.libgdxtests.physics;
+
+import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.graphics.g2d.Sprite;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.physics.box2d.Body;
+import com.badlogic.gdx.physics.box2d.Transform;
+import com.badlogic.gdx.utils.ObjectIntMap;
+
+/**
+ * Dense list of the bodies that get drawn, paired with their sprites. Transforms
+ * are read once per step with a single getTransform call per awake body and kept
+ * in flat arrays (previous and current), so drawing costs no JNI calls at all and
+ * sleeping bodies cost next to nothing.
+ *
+ * Call add/remove when bodies are created/destroyed and afterStep after every
+ * world.step (see {@link FixedStepper.StepListener}).
+ */
+public class BodyRegistry {
+
+	private Body[] bodies = new Body[64];
+	private Sprite[] sprites = new Sprite[64];
+	private float[] previous = new float[64*3], current = new float[64*3]; // x, y, angle
+	private boolean[] awake = new boolean[64], placed = new boolean[64];
+	private final ObjectIntMap<Body> indices = new ObjectIntMap<Body>();
+	private int size, awakeCount;
+
+	public void add(Body body, Sprite sprite){
+		if (size == bodies.length)
+			grow();
+
+		int i = size++;
+		bodies[i] = body;
+		sprites[i] = sprite;
+		indices.put(body, i);
+
+		current[i*3 + 2] = 0;
+		read(i);
+		System.arraycopy(current, i*3, previous, i*3, 3);
+		awake[i] = true;
+		placed[i] = false;
+	}
+
+	/** Swaps the last body into the hole, so order is not kept. **/
+	public void remove(Body body){
+		int i = indices.remove(body, -1);
+		if (i == -1)
+			return;
+
+		int last = --size;
+		if (i != last){
+			bodies[i] = bodies[last];
+			sprites[i] = sprites[last];
+			System.arraycopy(previous, last*3, previous, i*3, 3);
+			System.arraycopy(current, last*3, current, i*3, 3);
+			awake[i] = awake[last];
+			placed[i] = placed[last];
+			indices.put(bodies[i], i);
+		}
+		bodies[last] = null;
+		sprites[last] = null;
+	}
+
+	public void clear(){
+		for (int i = 0; i < size; i++){
+			bodies[i] = null;
+			sprites[i] = null;
+		}
+		indices.clear();
+		size = 0;
+	}
+
+	public int size(){
+		return size;
+	}
+
+	public Body getBody(int index){
+		return bodies[index];
+	}
+
+	public Sprite getSprite(int index){
+		return sprites[index];
+	}
+
+	/** Position and angle (radians) read by the last afterStep. **/
+	public float getX(int index){
+		return current[index*3];
+	}
+
+	public float getY(int index){
+		return current[index*3 + 1];
+	}
+
+	public float getAngle(int index){
+		return current[index*3 + 2];
+	}
+
+	/** Whether the body was awake after the last step. **/
+	public boolean isAwake(int index){
+		return awake[index];
+	}
+
+	/** Bodies that were awake after the last step. **/
+	public int getAwakeCount(){
+		return awakeCount;
+	}
+
+	public void afterStep(){
+		awakeCount = 0;
+		for (int i = 0; i < size; i++){
+			if (!bodies[i].isAwake()){
+				if (awake[i]){
+					// Just fell asleep, settle on the final transform
+					System.arraycopy(current, i*3, previous, i*3, 3);
+					awake[i] = false;
+					placed[i] = false;
+				}
+				continue;
+			}
+
+			System.arraycopy(current, i*3, previous, i*3, 3);
+			read(i);
+			awake[i] = true;
+			awakeCount++;
+		}
+	}
+
+	private void read(int i){
+		Transform transform = bodies[i].getTransform();
+		float[] vals = transform.vals;
+		int o = i*3;
+		current[o] = vals[Transform.POS_X];
+		current[o + 1] = vals[Transform.POS_Y];
+
+		// Keep the angle continuous so interpolation doesn't spin the long way round
+		float angle = (float)Math.atan2(vals[Transform.SIN], vals[Transform.COS]);
+		float last = current[o + 2];
+		while (angle - last > MathUtils.PI) angle -= MathUtils.PI2;
+		while (angle - last < -MathUtils.PI) angle += MathUtils.PI2;
+		current[o + 2] = angle;
+	}
+
+	/** Draws every sprite alpha of the way from its previous to its current transform. **/
+	public void draw(Batch batch, float alpha){
+		for (int i = 0; i < size; i++){
+			Sprite sprite = sprites[i];
+
+			// Sleeping bodies keep the vertices from the last time they were placed
+			if (awake[i] || !placed[i]){
+				int o = i*3;
+				float x = previous[o] + (current[o] - previous[o])*alpha;
+				float y = previous[o + 1] + (current[o + 1] - previous[o + 1])*alpha;
+				float angle = previous[o + 2] + (current[o + 2] - previous[o + 2])*alpha;
+
+				sprite.setPosition(x - sprite.getWidth()/2, y - sprite.getHeight()/2);
+				sprite.setRotation(angle * MathUtils.radiansToDegrees);
+				placed[i] = !awake[i];
+			}
+
+			sprite.draw(batch);
+		}
+	}
+
+	/**
+	 * Copies the transforms read by the last afterStep into previous and current,
+	 * which must hold size()*3 floats. Used to hand them to another thread.
+	 */
+	public void copyTransforms(float[] previous, float[] current){
+		System.arraycopy(this.previous, 0, previous, 0, size*3);
+		System.arraycopy(this.current, 0, current, 0, size*3);
+	}
+
+	/**
+	 * Draws the first count sprites from transforms copied by copyTransforms,
+	 * without touching the registry's own transforms.
+	 */
+	public void draw(Batch batch, float alpha, float[] previous, float[] current, int count){
+		for (int i = 0; i < count; i++){
+			Sprite sprite = sprites[i];
+			int o = i*3;
+			float x = previous[o] + (current[o] - previous[o])*alpha;
+			float y = previous[o + 1] + (current[o + 1] - previous[o + 1])*alpha;
+			float angle = previous[o + 2] + (current[o + 2] - previous[o + 2])*alpha;
+
+			sprite.setPosition(x - sprite.getWidth()/2, y - sprite.getHeight()/2);
+			sprite.setRotation(angle * MathUtils.radiansToDegrees);
+			sprite.draw(batch);
+		}
+	}
+
+	private void grow(){
+		int capacity = bodies.length*2;
+
+		Body[] bodies = new Body[capacity];
+		System.arraycopy(this.bodies, 0, bodies, 0, size);
+		this.bodies = bodies;
+
+		Sprite[] sprites = new Sprite[capacity];
+		System.arraycopy(this.sprites, 0, sprites, 0, size);
+		this.sprites = sprites;
+
+		float[] previous = new float[capacity*3];
+		System.arraycopy(this.previous, 0, previous, 0, size*3);
+		this.previous = previous;
+
+		float[] current = new float[capacity*3];
+		System.arraycopy(this.current, 0, current, 0, size*3);
+		this.current = current;
+
+		boolean[] awake = new boolean[capacity];
+		System.arraycopy(this.awake, 0, awake, 0, size);
+		this.awake = awake;
+
+		boolean[] placed = new boolean[capacity];
+		System.arraycopy(this.placed, 0, placed, 0, size);
+		this.placed = placed;
+	}
+}
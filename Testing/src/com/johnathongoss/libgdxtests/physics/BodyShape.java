@@ -0,0 +1,78 @@
+package com.johnathongoss.libgdxtests.physics;
+
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.physics.box2d.Body;
+import com.badlogic.gdx.physics.box2d.CircleShape;
+import com.badlogic.gdx.physics.box2d.FixtureDef;
+import com.badlogic.gdx.physics.box2d.PolygonShape;
+
+/**
+ * A body-editor shape, already split into convex polygons Box2D accepts.
+ * Coordinates are normalised like in the editor (the image is 1 wide) and
+ * relative to the shape's origin, so attach only has to scale them.
+ */
+public class BodyShape {
+
+	public final String name;
+	/** Convex pieces as x, y pairs, at most {@link ConvexDecomposer#MAX_VERTICES} points each. **/
+	final float[][] polygons;
+	/** x, y, radius per circle. **/
+	final float[] circles;
+	public final float minX, minY, maxX, maxY;
+
+	private final float[] scaled = new float[ConvexDecomposer.MAX_VERTICES*2];
+	private final Vector2 center = new Vector2();
+
+	BodyShape(String name, float[][] polygons, float[] circles) {
+		this.name = name;
+		this.polygons = polygons;
+		this.circles = circles;
+
+		float minX = Float.MAX_VALUE, minY = Float.MAX_VALUE, maxX = -Float.MAX_VALUE, maxY = -Float.MAX_VALUE;
+		for (float[] polygon : polygons){
+			for (int i = 0; i < polygon.length; i += 2){
+				minX = Math.min(minX, polygon[i]);
+				maxX = Math.max(maxX, polygon[i]);
+				minY = Math.min(minY, polygon[i + 1]);
+				maxY = Math.max(maxY, polygon[i + 1]);
+			}
+		}
+		for (int i = 0; i < circles.length; i += 3){
+			minX = Math.min(minX, circles[i] - circles[i + 2]);
+			maxX = Math.max(maxX, circles[i] + circles[i + 2]);
+			minY = Math.min(minY, circles[i + 1] - circles[i + 2]);
+			maxY = Math.max(maxY, circles[i + 1] + circles[i + 2]);
+		}
+		this.minX = minX;
+		this.minY = minY;
+		this.maxX = maxX;
+		this.maxY = maxY;
+	}
+
+	public int getPolygonCount(){
+		return polygons.length;
+	}
+
+	public int getCircleCount(){
+		return circles.length / 3;
+	}
+
+	/** Creates one fixture per piece on body, using fixtureDef for the material and the given shapes as scratch. **/
+	public void attach(Body body, FixtureDef fixtureDef, float scale, PolygonShape polygonShape, CircleShape circleShape){
+		for (float[] polygon : polygons){
+			for (int i = 0; i < polygon.length; i++)
+				scaled[i] = polygon[i]*scale;
+
+			polygonShape.set(scaled, 0, polygon.length);
+			fixtureDef.shape = polygonShape;
+			body.createFixture(fixtureDef);
+		}
+
+		for (int i = 0; i < circles.length; i += 3){
+			circleShape.setPosition(center.set(circles[i]*scale, circles[i + 1]*scale));
+			circleShape.setRadius(circles[i + 2]*scale);
+			fixtureDef.shape = circleShape;
+			body.createFixture(fixtureDef);
+		}
+	}
+}
@@ -0,0 +1,127 @@
+package com.johnathongoss.libgdxtests.physics;
+
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.physics.box2d.Contact;
+import com.badlogic.gdx.physics.box2d.ContactImpulse;
+import com.badlogic.gdx.physics.box2d.ContactListener;
+import com.badlogic.gdx.physics.box2d.Fixture;
+import com.badlogic.gdx.physics.box2d.Manifold;
+
+/**
+ * ContactListener that only copies a small record of each event into a
+ * preallocated ring buffer: the two fixtures, the normal and, for impacts,
+ * the normal impulse. Game logic drains it after world.step, outside the
+ * native callback, where it is safe to change bodies.
+ *
+ * Nothing is allocated per event. When the buffer is full new events are
+ * dropped and counted rather than overwriting ones not drained yet.
+ */
+public class ContactQueue implements ContactListener {
+
+	public static final int BEGIN = 0, END = 1, IMPACT = 2;
+
+	public interface Handler {
+		public void onContact(int type, Fixture fixtureA, Fixture fixtureB, float normalX, float normalY, float impulse);
+	}
+
+	private final int mask;
+	private final int[] types;
+	private final Fixture[] fixturesA, fixturesB;
+	private final float[] normals, impulses;
+	private int head, size, dropped;
+	private float impactThreshold = Float.MAX_VALUE;
+
+	/** capacity is rounded up to a power of two. **/
+	public ContactQueue(int capacity) {
+		int size = 1;
+		while (size < capacity)
+			size <<= 1;
+
+		mask = size - 1;
+		types = new int[size];
+		fixturesA = new Fixture[size];
+		fixturesB = new Fixture[size];
+		normals = new float[size*2];
+		impulses = new float[size];
+	}
+
+	/** postSolve records an IMPACT when the largest normal impulse reaches threshold. Off by default. **/
+	public void setImpactThreshold(float threshold){
+		impactThreshold = threshold;
+	}
+
+	@Override
+	public void beginContact(Contact contact) {
+		Vector2 normal = contact.getWorldManifold().getNormal();
+		push(BEGIN, contact, normal.x, normal.y, 0);
+	}
+
+	@Override
+	public void endContact(Contact contact) {
+		push(END, contact, 0, 0, 0);
+	}
+
+	@Override
+	public void preSolve(Contact contact, Manifold oldManifold) {
+	}
+
+	@Override
+	public void postSolve(Contact contact, ContactImpulse impulse) {
+		float[] normalImpulses = impulse.getNormalImpulses();
+		float max = 0;
+		for (int i = 0; i < impulse.getCount(); i++)
+			max = Math.max(max, normalImpulses[i]);
+
+		if (max >= impactThreshold){
+			Vector2 normal = contact.getWorldManifold().getNormal();
+			push(IMPACT, contact, normal.x, normal.y, max);
+		}
+	}
+
+	private void push(int type, Contact contact, float normalX, float normalY, float impulse){
+		if (size > mask){
+			dropped++;
+			return;
+		}
+
+		int i = (head + size++) & mask;
+		types[i] = type;
+		fixturesA[i] = contact.getFixtureA();
+		fixturesB[i] = contact.getFixtureB();
+		normals[i*2] = normalX;
+		normals[i*2 + 1] = normalY;
+		impulses[i] = impulse;
+	}
+
+	/** Hands every queued event to handler, oldest first, and empties the queue. Returns the count. **/
+	public int drain(Handler handler){
+		int count = size;
+		for (int n = 0; n < count; n++){
+			int i = (head + n) & mask;
+			handler.onContact(types[i], fixturesA[i], fixturesB[i], normals[i*2], normals[i*2 + 1], impulses[i]);
+
+			// Fixtures can be destroyed after this, don't keep them reachable
+			fixturesA[i] = null;
+			fixturesB[i] = null;
+		}
+
+		head = (head + count) & mask;
+		size = 0;
+		return count;
+	}
+
+	public int size(){
+		return size;
+	}
+
+	/** Events lost to a full buffer since the last call. **/
+	public int getDropped(){
+		int dropped = this.dropped;
+		this.dropped = 0;
+		return dropped;
+	}
+
+	public int getCapacity(){
+		return mask + 1;
+	}
+}
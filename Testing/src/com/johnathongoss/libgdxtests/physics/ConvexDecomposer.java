@@ -0,0 +1,142 @@
+package com.johnathongoss.libgdxtests.physics;
+
+import com.badlogic.gdx.math.EarClippingTriangulator;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.ShortArray;
+
+/**
+ * Splits a simple (possibly concave) outline into convex polygons Box2D can
+ * take: ear clipping into triangles, then Hertel-Mehlhorn style merging of
+ * neighbouring pieces as long as the result stays convex and within
+ * {@link #MAX_VERTICES}. Not fast, meant to run once per shape and be cached.
+ */
+public class ConvexDecomposer {
+
+	/** b2_maxPolygonVertices **/
+	public static final int MAX_VERTICES = 8;
+	static final float EPSILON = 1e-6f;
+
+	private final EarClippingTriangulator triangulator = new EarClippingTriangulator();
+
+	/** outline is x, y pairs in either winding. Returns counter clockwise convex pieces as x, y pairs. **/
+	public Array<float[]> decompose(float[] outline){
+		Array<IntArray> pieces = new Array<IntArray>();
+		ShortArray triangles = triangulator.computeTriangles(outline);
+
+		for (int i = 0; i + 2 < triangles.size; i += 3){
+			IntArray piece = new IntArray();
+			piece.add(triangles.get(i));
+			piece.add(triangles.get(i + 1));
+			piece.add(triangles.get(i + 2));
+
+			float area = area(outline, piece);
+			if (Math.abs(area) < EPSILON)
+				continue;
+			if (area < 0)
+				piece.reverse();
+			pieces.add(piece);
+		}
+
+		boolean merged = true;
+		while (merged){
+			merged = false;
+
+			search:
+			for (int i = 0; i < pieces.size; i++){
+				for (int j = i + 1; j < pieces.size; j++){
+					IntArray union = merge(outline, pieces.get(i), pieces.get(j));
+					if (union != null){
+						pieces.set(i, union);
+						pieces.removeIndex(j);
+						merged = true;
+						break search;
+					}
+				}
+			}
+		}
+
+		Array<float[]> polygons = new Array<float[]>();
+		for (int i = 0; i < pieces.size; i++)
+			polygons.add(toVertices(outline, pieces.get(i)));
+		return polygons;
+	}
+
+	/**
+	 * Splits a convex polygon with more than MAX_VERTICES points into a fan of
+	 * smaller ones. Returns it as is otherwise.
+	 */
+	public Array<float[]> split(float[] convex){
+		Array<float[]> polygons = new Array<float[]>();
+		int count = convex.length / 2;
+		if (count <= MAX_VERTICES){
+			polygons.add(convex);
+			return polygons;
+		}
+
+		// Each piece is vertex 0 plus a run of MAX_VERTICES - 1 points sharing an edge with the next
+		for (int start = 1; start < count - 1; start += MAX_VERTICES - 2){
+			int end = Math.min(start + MAX_VERTICES - 2, count - 1);
+			float[] piece = new float[(end - start + 2)*2];
+			piece[0] = convex[0];
+			piece[1] = convex[1];
+			System.arraycopy(convex, start*2, piece, 2, (end - start + 1)*2);
+			polygons.add(piece);
+		}
+		return polygons;
+	}
+
+	/** Joins a and b if they share an edge and the result is convex and small enough, else null. **/
+	private IntArray merge(float[] outline, IntArray a, IntArray b){
+		if (a.size + b.size - 2 > MAX_VERTICES)
+			return null;
+
+		for (int i = 0; i < a.size; i++){
+			int from = a.get(i), to = a.get((i + 1) % a.size);
+
+			// Counter clockwise neighbours run the shared edge the other way round
+			for (int j = 0; j < b.size; j++){
+				if (b.get(j) != to || b.get((j + 1) % b.size) != from)
+					continue;
+
+				IntArray union = new IntArray(a.size + b.size - 2);
+				for (int k = 0; k < a.size; k++)
+					union.add(a.get((i + 1 + k) % a.size)); // to ... from
+				for (int k = 2; k < b.size; k++)
+					union.add(b.get((j + k) % b.size)); // b's points between from and to
+
+				return isConvex(outline, union) ? union : null;
+			}
+		}
+		return null;
+	}
+
+	private static boolean isConvex(float[] outline, IntArray piece){
+		for (int i = 0; i < piece.size; i++){
+			int p0 = piece.get(i)*2, p1 = piece.get((i + 1) % piece.size)*2, p2 = piece.get((i + 2) % piece.size)*2;
+			float cross = (outline[p1] - outline[p0])*(outline[p2 + 1] - outline[p1 + 1])
+					- (outline[p1 + 1] - outline[p0 + 1])*(outline[p2] - outline[p1]);
+			if (cross < EPSILON)
+				return false;
+		}
+		return true;
+	}
+
+	private static float area(float[] outline, IntArray piece){
+		float area = 0;
+		for (int i = 0; i < piece.size; i++){
+			int p0 = piece.get(i)*2, p1 = piece.get((i + 1) % piece.size)*2;
+			area += outline[p0]*outline[p1 + 1] - outline[p1]*outline[p0 + 1];
+		}
+		return area/2;
+	}
+
+	private static float[] toVertices(float[] outline, IntArray piece){
+		float[] vertices = new float[piece.size*2];
+		for (int i = 0; i < piece.size; i++){
+			vertices[i*2] = outline[piece.get(i)*2];
+			vertices[i*2 + 1] = outline[piece.get(i)*2 + 1];
+		}
+		return vertices;
+	}
+}
@@ -0,0 +1,79 @@
+package com.johnathongoss.libgdxtests.physics;
+
+import com.badlogic.gdx.physics.box2d.World;
+import com.badlogic.gdx.utils.TimeUtils;
+
+/**
+ * Steps a World with a fixed time step, carrying the remainder of each frame
+ * over to the next. At most maxSteps are run per frame, anything beyond that
+ * is dropped so a long hitch can't snowball into ever longer frames.
+ *
+ * After update, getAlpha() says how far the frame is between the last two
+ * steps, for interpolating what is drawn.
+ */
+public class FixedStepper {
+
+	public interface StepListener {
+		/** Called right after every world.step, eg. to read the new transforms. **/
+		public void afterStep();
+	}
+
+	public final float step;
+	public final int maxSteps, velocityIterations, positionIterations;
+
+	private float accumulator;
+	private StepListener listener;
+	private int steps;
+	private long stepNanos;
+
+	public FixedStepper(float step, int maxSteps, int velocityIterations, int positionIterations) {
+		this.step = step;
+		this.maxSteps = maxSteps;
+		this.velocityIterations = velocityIterations;
+		this.positionIterations = positionIterations;
+	}
+
+	public void setListener(StepListener listener){
+		this.listener = listener;
+	}
+
+	/** Returns the number of steps run this frame. **/
+	public int update(World world, float delta){
+		accumulator += delta;
+		steps = 0;
+
+		while (accumulator >= step && steps < maxSteps){
+			long time = TimeUtils.nanoTime();
+			world.step(step, velocityIterations, positionIterations);
+			stepNanos = TimeUtils.nanoTime() - time;
+			if (listener != null)
+				listener.afterStep();
+			accumulator -= step;
+			steps++;
+		}
+
+		// Spiral of death, drop the time we could not catch up on
+		if (accumulator >= step)
+			accumulator %= step;
+
+		return steps;
+	}
+
+	/** 0 = draw at the previous step, 1 = draw at the current one. **/
+	public float getAlpha(){
+		return accumulator / step;
+	}
+
+	public int getSteps(){
+		return steps;
+	}
+
+	/** How long the last world.step took, excluding the listener. **/
+	public long getStepNanos(){
+		return stepNanos;
+	}
+
+	public void reset(){
+		accumulator = 0;
+	}
+}
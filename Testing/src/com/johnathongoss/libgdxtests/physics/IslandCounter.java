@@ -0,0 +1,122 @@
+package com.johnathongoss.libgdxtests.physics;
+
+import com.badlogic.gdx.physics.box2d.Body;
+import com.badlogic.gdx.physics.box2d.BodyDef.BodyType;
+import com.badlogic.gdx.physics.box2d.Contact;
+import com.badlogic.gdx.physics.box2d.Joint;
+import com.badlogic.gdx.physics.box2d.World;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.ObjectIntMap;
+
+/**
+ * Rebuilds Box2D's islands on the Java side, since the solver does not expose
+ * them: non-static bodies joined by touching contacts or joints, with union-find.
+ * Static bodies never join islands, same as in b2World::Solve, and neither do
+ * inactive ones, eg. bodies BodyFactory has freed, which are still in the world.
+ */
+public class IslandCounter {
+
+	private final Array<Body> bodies = new Array<Body>();
+	private final Array<Joint> joints = new Array<Joint>();
+	private final ObjectIntMap<Body> indices = new ObjectIntMap<Body>();
+	private int[] parent = new int[64], size = new int[64];
+	private final IntArray islandSizes = new IntArray();
+	private int largest;
+
+	/** Counts islands of awake bodies in world. Reads contacts and joints over JNI, diagnostics only. **/
+	public int count(World world){
+		world.getBodies(bodies);
+		indices.clear();
+
+		if (parent.length < bodies.size){
+			parent = new int[bodies.size];
+			size = new int[bodies.size];
+		}
+
+		for (int i = 0; i < bodies.size; i++){
+			indices.put(bodies.get(i), i);
+			parent[i] = i;
+			size[i] = 1;
+		}
+
+		Array<Contact> contacts = world.getContactList();
+		for (int i = 0; i < contacts.size; i++){
+			Contact contact = contacts.get(i);
+			if (contact.isTouching() && contact.isEnabled())
+				union(contact.getFixtureA().getBody(), contact.getFixtureB().getBody());
+		}
+
+		world.getJoints(joints);
+		for (int i = 0; i < joints.size; i++)
+			union(joints.get(i).getBodyA(), joints.get(i).getBodyB());
+
+		islandSizes.clear();
+		largest = 0;
+		for (int i = 0; i < bodies.size; i++){
+			Body body = bodies.get(i);
+			if (find(i) != i || !isSimulated(body) || !body.isAwake())
+				continue;
+
+			islandSizes.add(size[i]);
+			largest = Math.max(largest, size[i]);
+		}
+		return islandSizes.size;
+	}
+
+	/** Inactive bodies keep isAwake() true, so this has to come first. **/
+	private static boolean isSimulated(Body body){
+		return body.isActive() && body.getType() != BodyType.StaticBody;
+	}
+
+	private void union(Body a, Body b){
+		if (!isSimulated(a) || !isSimulated(b))
+			return;
+
+		int rootA = find(indices.get(a, -1)), rootB = find(indices.get(b, -1));
+		if (rootA == rootB)
+			return;
+
+		// Union by size
+		if (size[rootA] < size[rootB]){
+			int swap = rootA;
+			rootA = rootB;
+			rootB = swap;
+		}
+		parent[rootB] = rootA;
+		size[rootA] += size[rootB];
+	}
+
+	private int find(int i){
+		while (parent[i] != i){
+			parent[i] = parent[parent[i]]; // path halving
+			i = parent[i];
+		}
+		return i;
+	}
+
+	/** The bodies of the world as of the last count(), see {@link #getIsland(int)}. **/
+	public Array<Body> getBodies(){
+		return bodies;
+	}
+
+	/**
+	 * Island of the index-th body of getBodies(), as the index of its root body,
+	 * or -1 for static, inactive or sleeping bodies which are not in any island.
+	 */
+	public int getIsland(int index){
+		Body body = bodies.get(index);
+		if (!isSimulated(body) || !body.isAwake())
+			return -1;
+		return find(index);
+	}
+
+	/** Body count of every island found by the last count(). **/
+	public IntArray getIslandSizes(){
+		return islandSizes;
+	}
+
+	public int getLargest(){
+		return largest;
+	}
+}
@@ -0,0 +1,184 @@
+package com.johnathongoss.libgdxtests.physics;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.physics.box2d.World;
+import com.badlogic.gdx.utils.AtomicQueue;
+import com.badlogic.gdx.utils.TimeUtils;
+import com.johnathongoss.libgdxtests.physics.FixedStepper.StepListener;
+
+/**
+ * Steps a World on its own thread at a fixed rate. While it runs the World
+ * belongs to this thread: the render thread must not touch it, and talks to
+ * it only through {@link #post} and {@link #getSnapshot}.
+ *
+ * Input is posted as {@link Command}s through a lock-free single producer,
+ * single consumer queue and run by the {@link CommandHandler} before the next
+ * step. Commands are recycled through a second queue going the other way.
+ *
+ * After every step the transforms in the {@link BodyRegistry} are copied into
+ * a {@link Snapshot}. Snapshots are double buffered with a spare in between:
+ * the physics thread fills its back buffer and swaps it with the spare, the
+ * render thread swaps its front buffer with the spare when a newer one is
+ * there. Neither side ever waits for the other or sees a half written buffer.
+ *
+ * Bodies must not be added to or removed from the registry while running.
+ * An optional StepListener runs on the physics thread after every step, eg.
+ * to drain a {@link ContactQueue}.
+ */
+public class PhysicsThread implements Runnable {
+
+	public static final int TOUCH_DOWN = 0, TOUCH_DRAGGED = 1, TOUCH_UP = 2, LONG_PRESS = 3;
+
+	public static class Command {
+		public int type;
+		public float x, y;
+	}
+
+	public interface CommandHandler {
+		/** Called on the physics thread, the World may be used here. **/
+		public void execute(Command command);
+	}
+
+	public static class Snapshot {
+		public float[] previous = new float[64*3], current = new float[64*3];
+		public int size, awake, sequence;
+		public long time;
+		public float stepMillis;
+	}
+
+	private final World world;
+	private final BodyRegistry registry;
+	private final CommandHandler handler;
+	private final float step;
+	private final int maxSteps, velocityIterations, positionIterations;
+
+	private final AtomicQueue<Command> commands = new AtomicQueue<Command>(64);
+	private final AtomicQueue<Command> free = new AtomicQueue<Command>(64);
+
+	private final AtomicReference<Snapshot> spare = new AtomicReference<Snapshot>(new Snapshot());
+	private Snapshot back = new Snapshot(), front = new Snapshot();
+
+	private StepListener listener;
+	private Thread thread;
+	private volatile boolean running;
+	private int published;
+
+	public PhysicsThread(World world, BodyRegistry registry, CommandHandler handler, FixedStepper stepper) {
+		this.world = world;
+		this.registry = registry;
+		this.handler = handler;
+		step = stepper.step;
+		maxSteps = stepper.maxSteps;
+		velocityIterations = stepper.velocityIterations;
+		positionIterations = stepper.positionIterations;
+	}
+
+	/** Called on the physics thread after each step, once the registry has read the transforms. **/
+	public void setListener(StepListener listener){
+		this.listener = listener;
+	}
+
+	public void start(){
+		// Something to draw before the first step is published
+		publish(0);
+		front = spare.getAndSet(front);
+
+		running = true;
+		thread = new Thread(this, "Physics");
+		thread.start();
+	}
+
+	/** Stops and waits for the thread, the World belongs to the caller again afterwards. **/
+	public void stop(){
+		running = false;
+		try {
+			thread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		thread = null;
+	}
+
+	public boolean isRunning(){
+		return thread != null;
+	}
+
+	/** Render thread only. Returns false if the queue is full and the command was dropped. **/
+	public boolean post(int type, float x, float y){
+		Command command = free.poll();
+		if (command == null)
+			command = new Command();
+
+		command.type = type;
+		command.x = x;
+		command.y = y;
+		return commands.put(command);
+	}
+
+	/** Render thread only. The latest published snapshot, valid until the next call. **/
+	public Snapshot getSnapshot(){
+		if (spare.get().sequence > front.sequence)
+			front = spare.getAndSet(front);
+		return front;
+	}
+
+	/** How far the render thread is between the snapshot's previous and current transforms. **/
+	public float getAlpha(Snapshot snapshot){
+		float alpha = (TimeUtils.nanoTime() - snapshot.time) / (step*1000000000f);
+		return Math.min(alpha, 1);
+	}
+
+	@Override
+	public void run() {
+		long stepNanos = (long)(step*1000000000L);
+		long next = TimeUtils.nanoTime();
+
+		while (running){
+			Command command;
+			while ((command = commands.poll()) != null){
+				handler.execute(command);
+				free.put(command);
+			}
+
+			long time = TimeUtils.nanoTime();
+			world.step(step, velocityIterations, positionIterations);
+			registry.afterStep();
+			if (listener != null)
+				listener.afterStep();
+			publish(TimeUtils.nanoTime() - time);
+
+			next += stepNanos;
+			long wait = next - TimeUtils.nanoTime();
+
+			// Too far behind, drop the time instead of stepping flat out to catch up
+			if (wait < -stepNanos*maxSteps)
+				next = TimeUtils.nanoTime();
+			else if (wait > 0){
+				try {
+					Thread.sleep(wait / 1000000, (int)(wait % 1000000));
+				} catch (InterruptedException e) {
+					Gdx.app.log("PhysicsThread", "Interrupted");
+					running = false;
+				}
+			}
+		}
+	}
+
+	private void publish(long stepNanos){
+		int size = registry.size();
+		if (back.previous.length < size*3){
+			back.previous = new float[size*3*2];
+			back.current = new float[size*3*2];
+		}
+
+		registry.copyTransforms(back.previous, back.current);
+		back.size = size;
+		back.awake = registry.getAwakeCount();
+		back.stepMillis = stepNanos / 1000000f;
+		back.time = TimeUtils.nanoTime();
+		back.sequence = ++published;
+		back = spare.getAndSet(back);
+	}
+}
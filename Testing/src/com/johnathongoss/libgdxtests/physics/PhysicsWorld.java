@@ -0,0 +1,121 @@
+package com.johnathongoss.libgdxtests.physics;
+
+import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.physics.box2d.Body;
+import com.badlogic.gdx.physics.box2d.Box2DDebugRenderer;
+import com.badlogic.gdx.physics.box2d.Joint;
+import com.badlogic.gdx.physics.box2d.World;
+import com.badlogic.gdx.utils.Array;
+
+/**
+ * The one Box2D world, owned by MyGame and lent to whichever screen calls
+ * obtain(). It comes with the fixed step driver and the debug renderer, and
+ * holds the pixel to box unit constants the screens used to each declare.
+ *
+ * release() empties the world instead of disposing it, so moving between
+ * physics screens doesn't create and throw away worlds. The debug renderer
+ * is only created the first time a screen draws with it.
+ */
+public class PhysicsWorld {
+
+	public static final float STEP = 1/60f;
+	public static final int VELOCITY_ITERATIONS = 6;
+	public static final int POSITION_ITERATIONS = 2;
+	public static final int MAX_STEPS = 5;
+	public static final float WORLD_TO_BOX = 0.02f;
+	public static final float BOX_TO_WORLD = 50f;
+
+	/** Pixels to box units. **/
+	public static float toBox(float pixels){
+		return pixels*WORLD_TO_BOX;
+	}
+
+	/** Box units to pixels. **/
+	public static float toWorld(float box){
+		return box*BOX_TO_WORLD;
+	}
+
+	private final FixedStepper stepper = new FixedStepper(STEP, MAX_STEPS, VELOCITY_ITERATIONS, POSITION_ITERATIONS);
+	private final Array<Body> bodies = new Array<Body>();
+	private final Array<Joint> joints = new Array<Joint>();
+	private final Vector2 gravity = new Vector2();
+	private World world;
+	private Box2DDebugRenderer debugRenderer;
+	private boolean inUse;
+
+	/**
+	 * An empty world with the given gravity, created on the first call. The
+	 * caller owns it, and the stepper, until release().
+	 */
+	public World obtain(float gravityX, float gravityY){
+		if (inUse)
+			throw new IllegalStateException("World is still in use, release it first");
+		inUse = true;
+
+		if (world == null)
+			world = new World(gravity.set(gravityX, gravityY), true);
+		else
+			world.setGravity(gravity.set(gravityX, gravityY));
+		return world;
+	}
+
+	public World getWorld(){
+		return world;
+	}
+
+	public FixedStepper getStepper(){
+		return stepper;
+	}
+
+	/** Runs the fixed steps due this frame, see {@link FixedStepper#update(World, float)}. **/
+	public int update(float delta){
+		return stepper.update(world, delta);
+	}
+
+	/** Only call from the thread that steps the world. **/
+	public void renderDebug(Matrix4 projection){
+		if (debugRenderer == null)
+			debugRenderer = new Box2DDebugRenderer();
+		debugRenderer.render(world, projection);
+	}
+
+	/**
+	 * Destroys every joint and body and drops the listeners, leaving the world
+	 * empty for the next screen. Whatever stepped it on another thread must
+	 * have stopped.
+	 */
+	public void release(){
+		if (!inUse)
+			return;
+		inUse = false;
+
+		// destroyBody reports ended contacts, nobody is listening anymore
+		world.setContactListener(null);
+		world.setContactFilter(null);
+
+		world.getJoints(joints);
+		for (int i = 0; i < joints.size; i++)
+			world.destroyJoint(joints.get(i));
+		joints.clear();
+
+		world.getBodies(bodies);
+		for (int i = 0; i < bodies.size; i++)
+			world.destroyBody(bodies.get(i));
+		bodies.clear();
+
+		world.clearForces();
+		stepper.setListener(null);
+		stepper.reset();
+	}
+
+	public void dispose(){
+		release();
+		if (world != null)
+			world.dispose();
+		if (debugRenderer != null)
+			debugRenderer.dispose();
+		world = null;
+		debugRenderer = null;
+	}
+}
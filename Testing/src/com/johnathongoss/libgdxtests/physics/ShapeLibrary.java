@@ -0,0 +1,182 @@
+package com.johnathongoss.libgdxtests.physics;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.FloatArray;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.JsonReader;
+import com.badlogic.gdx.utils.JsonValue;
+import com.badlogic.gdx.utils.ObjectMap;
+import com.badlogic.gdx.utils.StreamUtils;
+
+/**
+ * Shapes from a Physics Body Editor JSON file, decomposed into convex pieces
+ * once and cached in a small binary file.
+ *
+ * The cache is keyed by a hash of the JSON bytes, so a later load only reads
+ * the raw file to hash it and then reads the floats back; no JSON parsing and
+ * no decomposition. Editing the JSON (or bumping {@link #VERSION}) rebuilds it.
+ *
+ * bodyeditor-loader.jar is built against the old JsonReader that returned
+ * OrderedMaps, which this libgdx no longer has, so the format is read here.
+ * Editor "polygons" are used as they are (split if over 8 points); bodies
+ * without them get their "shapes" outlines decomposed.
+ */
+public class ShapeLibrary {
+
+	static final int MAGIC = 0x42534850; // BSHP
+	static final int VERSION = 1;
+
+	private final ObjectMap<String, BodyShape> shapes = new ObjectMap<String, BodyShape>();
+	private boolean cached;
+
+	public static ShapeLibrary load(FileHandle json, FileHandle cache){
+		ShapeLibrary library = new ShapeLibrary();
+		byte[] bytes = json.readBytes();
+		int key = Arrays.hashCode(bytes);
+
+		if (cache.exists()){
+			try {
+				library.cached = library.read(cache, key);
+			} catch (IOException e) {
+				Gdx.app.log("ShapeLibrary", "Ignoring broken cache " + cache.path() + ": " + e.getMessage());
+			}
+		}
+
+		if (!library.cached){
+			library.shapes.clear();
+			library.parse(new String(bytes));
+
+			try {
+				library.write(cache, key);
+			} catch (Exception e) {
+				// Read only or missing local storage, everything still works without the cache
+				Gdx.app.log("ShapeLibrary", "Could not write " + cache.path() + ": " + e.getMessage());
+			}
+		}
+		return library;
+	}
+
+	public BodyShape get(String name){
+		BodyShape shape = shapes.get(name);
+		if (shape == null)
+			throw new GdxRuntimeException("No shape named " + name);
+		return shape;
+	}
+
+	public Array<String> getNames(){
+		return shapes.keys().toArray();
+	}
+
+	/** Whether the last load came from the binary cache. **/
+	public boolean isCached(){
+		return cached;
+	}
+
+	private void parse(String text){
+		ConvexDecomposer decomposer = new ConvexDecomposer();
+		JsonValue root = new JsonReader().parse(text);
+
+		for (JsonValue body = root.get("rigidBodies").child; body != null; body = body.next){
+			float originX = body.get("origin").getFloat("x"), originY = body.get("origin").getFloat("y");
+			Array<float[]> polygons = new Array<float[]>();
+
+			JsonValue editorPolygons = body.get("polygons");
+			if (editorPolygons != null && editorPolygons.child != null){
+				for (JsonValue polygon = editorPolygons.child; polygon != null; polygon = polygon.next)
+					polygons.addAll(decomposer.split(points(polygon, originX, originY)));
+			}
+			else if (body.get("shapes") != null){
+				for (JsonValue shape = body.get("shapes").child; shape != null; shape = shape.next){
+					if ("POLYGON".equals(shape.getString("type", "POLYGON")))
+						polygons.addAll(decomposer.decompose(points(shape.get("vertices"), originX, originY)));
+				}
+			}
+
+			FloatArray circles = new FloatArray();
+			if (body.get("circles") != null){
+				for (JsonValue circle = body.get("circles").child; circle != null; circle = circle.next){
+					circles.add(circle.getFloat("cx") - originX);
+					circles.add(circle.getFloat("cy") - originY);
+					circles.add(circle.getFloat("r"));
+				}
+			}
+
+			String name = body.getString("name");
+			shapes.put(name, new BodyShape(name, polygons.toArray(float[].class), circles.toArray()));
+		}
+	}
+
+	private static float[] points(JsonValue vertices, float originX, float originY){
+		FloatArray points = new FloatArray();
+		for (JsonValue vertex = vertices.child; vertex != null; vertex = vertex.next){
+			points.add(vertex.getFloat("x") - originX);
+			points.add(vertex.getFloat("y") - originY);
+		}
+		return points.toArray();
+	}
+
+	private void write(FileHandle cache, int key) throws IOException {
+		DataOutputStream output = new DataOutputStream(new BufferedOutputStream(cache.write(false)));
+		try {
+			output.writeInt(MAGIC);
+			output.writeInt(VERSION);
+			output.writeInt(key);
+			output.writeInt(shapes.size);
+
+			for (BodyShape shape : shapes.values()){
+				output.writeUTF(shape.name);
+				output.writeShort(shape.polygons.length);
+				for (float[] polygon : shape.polygons){
+					output.writeByte(polygon.length / 2);
+					for (int i = 0; i < polygon.length; i++)
+						output.writeFloat(polygon[i]);
+				}
+
+				output.writeShort(shape.circles.length / 3);
+				for (int i = 0; i < shape.circles.length; i++)
+					output.writeFloat(shape.circles[i]);
+			}
+		} finally {
+			StreamUtils.closeQuietly(output);
+		}
+	}
+
+	/** Returns false if the cache is from another version or another JSON file. **/
+	private boolean read(FileHandle cache, int key) throws IOException {
+		DataInputStream input = new DataInputStream(new BufferedInputStream(cache.read()));
+		try {
+			if (input.readInt() != MAGIC || input.readInt() != VERSION || input.readInt() != key)
+				return false;
+
+			int count = input.readInt();
+			for (int s = 0; s < count; s++){
+				String name = input.readUTF();
+
+				float[][] polygons = new float[input.readShort()][];
+				for (int p = 0; p < polygons.length; p++){
+					polygons[p] = new float[input.readByte()*2];
+					for (int i = 0; i < polygons[p].length; i++)
+						polygons[p][i] = input.readFloat();
+				}
+
+				float[] circles = new float[input.readShort()*3];
+				for (int i = 0; i < circles.length; i++)
+					circles[i] = input.readFloat();
+
+				shapes.put(name, new BodyShape(name, polygons, circles));
+			}
+			return true;
+		} finally {
+			StreamUtils.closeQuietly(input);
+		}
+	}
+}
@@ -0,0 +1,114 @@
+package com.johnathongoss.libgdxtests.physics;
+
+import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.graphics.g2d.Sprite;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.math.MathUtils;
+
+/**
+ * A sprite drawn in the outline of a body-editor shape instead of as its
+ * bounding rectangle. The region is stretched over the shape's bounds and
+ * each convex piece, circles included, is drawn as a fan of quads, which any
+ * Batch takes as four vertices like a sprite. Position, size, origin,
+ * rotation and scale work as for a Sprite covering the shape's bounds
+ * around its origin, which is what BodyFactory and BodyRegistry set.
+ */
+public class ShapeSprite extends Sprite {
+
+	static final int CIRCLE_POINTS = 16;
+
+	/** Shape space x, y and u, v per vertex, four vertices per quad. **/
+	private final float[] local;
+	private final float[] vertices;
+	private final float scale;
+	private float lastX, lastY, lastRotation, lastScaleX, lastScaleY, lastColor;
+	private boolean placed;
+
+	public ShapeSprite(BodyShape shape, float scale, TextureRegion region) {
+		super(region);
+		this.scale = scale;
+
+		int quads = 0;
+		for (float[] polygon : shape.polygons)
+			quads += quads(polygon.length/2);
+		quads += shape.getCircleCount()*quads(CIRCLE_POINTS);
+
+		local = new float[quads*16];
+		vertices = new float[quads*20];
+
+		float[] points = new float[Math.max(ConvexDecomposer.MAX_VERTICES, CIRCLE_POINTS)*2];
+		int o = 0;
+		for (float[] polygon : shape.polygons)
+			o = fan(shape, polygon, polygon.length/2, o);
+
+		float[] circles = shape.circles;
+		for (int i = 0; i < circles.length; i += 3){
+			for (int p = 0; p < CIRCLE_POINTS; p++){
+				float angle = MathUtils.PI2*p/CIRCLE_POINTS;
+				points[p*2] = circles[i] + circles[i + 2]*MathUtils.cos(angle);
+				points[p*2 + 1] = circles[i + 1] + circles[i + 2]*MathUtils.sin(angle);
+			}
+			o = fan(shape, points, CIRCLE_POINTS, o);
+		}
+	}
+
+	/** Quads in a fan over a convex polygon of count points, two triangles each. **/
+	private static int quads(int count){
+		return (count - 1)/2;
+	}
+
+	/**
+	 * Adds quads v0, vi, vi+1, vi+2, which the batch splits into the fan
+	 * triangles v0, vi, vi+1 and vi+1, vi+2, v0. An odd one out repeats its
+	 * last vertex.
+	 */
+	private int fan(BodyShape shape, float[] points, int count, int o){
+		for (int i = 1; i < count - 1; i += 2){
+			o = put(shape, points, 0, o);
+			o = put(shape, points, i, o);
+			o = put(shape, points, i + 1, o);
+			o = put(shape, points, Math.min(i + 2, count - 1), o);
+		}
+		return o;
+	}
+
+	private int put(BodyShape shape, float[] points, int point, int o){
+		float x = points[point*2], y = points[point*2 + 1];
+		float u = (x - shape.minX)/(shape.maxX - shape.minX), v = (y - shape.minY)/(shape.maxY - shape.minY);
+
+		local[o] = x*scale;
+		local[o + 1] = y*scale;
+		local[o + 2] = getU() + (getU2() - getU())*u;
+		local[o + 3] = getV2() + (getV() - getV2())*v;
+		return o + 4;
+	}
+
+	@Override
+	public void draw(Batch batch) {
+		float x = getX() + getOriginX(), y = getY() + getOriginY();
+		float rotation = getRotation(), scaleX = getScaleX(), scaleY = getScaleY();
+		float color = getColor().toFloatBits();
+
+		if (!placed || x != lastX || y != lastY || rotation != lastRotation || scaleX != lastScaleX || scaleY != lastScaleY || color != lastColor){
+			float cos = MathUtils.cosDeg(rotation), sin = MathUtils.sinDeg(rotation);
+			for (int l = 0, v = 0; l < local.length; l += 4, v += 5){
+				float localX = local[l]*scaleX, localY = local[l + 1]*scaleY;
+				vertices[v] = x + localX*cos - localY*sin;
+				vertices[v + 1] = y + localX*sin + localY*cos;
+				vertices[v + 2] = color;
+				vertices[v + 3] = local[l + 2];
+				vertices[v + 4] = local[l + 3];
+			}
+
+			lastX = x;
+			lastY = y;
+			lastRotation = rotation;
+			lastScaleX = scaleX;
+			lastScaleY = scaleY;
+			lastColor = color;
+			placed = true;
+		}
+
+		batch.draw(getTexture(), vertices, 0, vertices.length);
+	}
+}
@@ -0,0 +1,161 @@
+package com.johnathongoss.libgdxtests.physics;
+
+import com.badlogic.gdx.physics.box2d.Body;
+import com.badlogic.gdx.physics.box2d.BodyDef.BodyType;
+import com.badlogic.gdx.physics.box2d.World;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.ObjectIntMap;
+
+/**
+ * Sleep diagnostics and tuning, run after every step.
+ *
+ * Counts awake and sleeping bodies, rebuilds the islands (see
+ * {@link IslandCounter}) and flags restless bodies that have not slept for
+ * restlessSteps in a row.
+ *
+ * Box2D's sleep tolerances are compile time constants in b2Settings, so they
+ * can't be changed from here. Instead, when tolerances are set, an island
+ * whose bodies have all stayed under them for timeToSleep is put to sleep
+ * with setAwake(false). That is Box2D's own rule with looser numbers. Forcing
+ * single bodies would not stick, since the solver wakes the rest of an island.
+ *
+ * Once every body sleeps this does no JNI work at all.
+ *
+ * Counts are kept per Body, and BodyFactory hands the same Body out again
+ * after freeing it, so forget() a body when it is freed or deactivated.
+ */
+public class SleepMonitor {
+
+	public static final int DEFAULT_RESTLESS_STEPS = 600;
+
+	private final IslandCounter islands = new IslandCounter();
+	private final ObjectIntMap<Body> awakeSteps = new ObjectIntMap<Body>();
+	private final ObjectIntMap<Body> quietSteps = new ObjectIntMap<Body>();
+	private int[] islandQuiet = new int[64];
+
+	private float linearTolerance, angularTolerance, timeToSleep;
+	private boolean forceSleep;
+	private int restlessSteps = DEFAULT_RESTLESS_STEPS;
+	private boolean countIslands;
+
+	public int awake, asleep, islandCount, largestIsland, restless, forced;
+
+	/** Island counts cost a pass over every contact, so they are optional. **/
+	public void setCountIslands(boolean countIslands){
+		this.countIslands = countIslands;
+	}
+
+	/**
+	 * Sleeps islands slower than linear (m/s) and angular (rad/s) for time
+	 * seconds. Box2D itself uses 0.01, 2 degrees and 0.5.
+	 */
+	public void setSleepTolerances(float linear, float angular, float time){
+		linearTolerance = linear;
+		angularTolerance = angular;
+		timeToSleep = time;
+		forceSleep = true;
+		quietSteps.clear();
+	}
+
+	/** Leave sleeping to Box2D again. **/
+	public void clearSleepTolerances(){
+		forceSleep = false;
+		quietSteps.clear();
+	}
+
+	public void setRestlessSteps(int steps){
+		restlessSteps = steps;
+	}
+
+	public boolean isRestless(Body body){
+		return awakeSteps.get(body, 0) >= restlessSteps;
+	}
+
+	/** Drops a freed or deactivated body's counts, so it starts afresh if it comes back. **/
+	public void forget(Body body){
+		awakeSteps.remove(body, 0);
+		quietSteps.remove(body, 0);
+	}
+
+	/** Drops every body's counts, eg. when the world is emptied. **/
+	public void clear(){
+		awakeSteps.clear();
+		quietSteps.clear();
+	}
+
+	public void afterStep(World world, BodyRegistry registry, float step){
+		awake = registry.getAwakeCount();
+		asleep = registry.size() - awake;
+
+		if (awake == 0){
+			// Settled, nothing can change until something wakes a body
+			if (awakeSteps.size > 0)
+				awakeSteps.clear();
+			if (quietSteps.size > 0)
+				quietSteps.clear();
+			islandCount = largestIsland = restless = 0;
+			return;
+		}
+
+		restless = 0;
+		for (int i = 0; i < registry.size(); i++){
+			Body body = registry.getBody(i);
+			if (!registry.isAwake(i)){
+				awakeSteps.remove(body, 0);
+				continue;
+			}
+
+			if (awakeSteps.getAndIncrement(body, 0, 1) + 1 >= restlessSteps)
+				restless++;
+		}
+
+		if (!countIslands && !forceSleep)
+			return;
+
+		islandCount = islands.count(world);
+		largestIsland = islands.getLargest();
+
+		if (forceSleep)
+			sleepQuietIslands(step);
+	}
+
+	private void sleepQuietIslands(float step){
+		Array<Body> bodies = islands.getBodies();
+		int needed = Math.max(1, (int)(timeToSleep / step));
+
+		if (islandQuiet.length < bodies.size)
+			islandQuiet = new int[bodies.size];
+		for (int i = 0; i < bodies.size; i++)
+			islandQuiet[i] = Integer.MAX_VALUE;
+
+		// Lowest quiet count per island, keyed by the island's root
+		for (int i = 0; i < bodies.size; i++){
+			int island = islands.getIsland(i);
+			if (island == -1)
+				continue;
+
+			Body body = bodies.get(i);
+			int quiet = 0;
+			if (body.getType() == BodyType.KinematicBody
+					|| (body.getLinearVelocity().len2() <= linearTolerance*linearTolerance
+					&& Math.abs(body.getAngularVelocity()) <= angularTolerance))
+				quiet = quietSteps.getAndIncrement(body, 0, 1) + 1;
+			else
+				quietSteps.remove(body, 0);
+
+			islandQuiet[island] = Math.min(islandQuiet[island], quiet);
+		}
+
+		forced = 0;
+		for (int i = 0; i < bodies.size; i++){
+			int island = islands.getIsland(i);
+			if (island == -1 || islandQuiet[island] < needed)
+				continue;
+
+			Body body = bodies.get(i);
+			body.setAwake(false);
+			quietSteps.remove(body, 0);
+			forced++;
+		}
+	}
+}
@@ -0,0 +1,268 @@
+package com.johnathongoss.libgdxtests.physics;
+
+import java.util.Random;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.physics.box2d.Body;
+import com.badlogic.gdx.physics.box2d.BodyDef;
+import com.badlogic.gdx.physics.box2d.BodyDef.BodyType;
+import com.badlogic.gdx.physics.box2d.CircleShape;
+import com.badlogic.gdx.physics.box2d.Contact;
+import com.badlogic.gdx.physics.box2d.EdgeShape;
+import com.badlogic.gdx.physics.box2d.FixtureDef;
+import com.badlogic.gdx.physics.box2d.PolygonShape;
+import com.badlogic.gdx.physics.box2d.World;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.TimeUtils;
+
+/**
+ * Ramps the body count of a World and records what every step cost, to find
+ * where the simulation breaks down on a given device.
+ *
+ * Every interval steps another increment of bodies is dropped in, cycling
+ * circles, boxes and polygons, until maxBodies is reached. After each step
+ * call {@link #afterStep(long)} with the time world.step took; it records a
+ * {@link Sample} and adds one CSV row. Body creation goes through a
+ * {@link Spawner} so the Box2D screen can attach sprites, {@link BareSpawner}
+ * makes plain bodies for headless runs.
+ */
+public class StressScenario {
+
+	public static final int CIRCLE = 0, BOX = 1, POLYGON = 2;
+	public static final String CSV_HEADER = "step,bodies,step_ms,proxies,pairs,contacts,awake,islands,largest_island";
+
+	public interface Spawner {
+		/** Creates a dynamic body at x, y. size is the rough diameter, all in box units. **/
+		public void spawn(int shape, float x, float y, float size, Random random);
+	}
+
+	public static class Sample {
+		public int step, bodies, proxies, pairs, contacts, awake, islands, largestIsland;
+		public float stepMillis;
+	}
+
+	public final Sample sample = new Sample();
+
+	private final World world;
+	private final Spawner spawner;
+	private final float width, height;
+	private final Random random;
+	private final IslandCounter islands = new IslandCounter();
+	private final Array<Body> bodies = new Array<Body>();
+	private final StringBuilder csv = new StringBuilder();
+
+	private int increment = 20, interval = 30, maxBodies = 1000;
+	private float minSize = 0.3f, maxSize = 0.6f;
+	private int steps, spawned;
+	private float peakMillis;
+
+	/** width and height of the walled area in box units, bodies drop in near the top. **/
+	public StressScenario(World world, Spawner spawner, float width, float height, long seed) {
+		this.world = world;
+		this.spawner = spawner;
+		this.width = width;
+		this.height = height;
+		random = new Random(seed);
+
+		csv.append(CSV_HEADER).append('\n');
+	}
+
+	public void setRamp(int increment, int interval, int maxBodies){
+		this.increment = increment;
+		this.interval = interval;
+		this.maxBodies = maxBodies;
+	}
+
+	public void setSize(float minSize, float maxSize){
+		this.minSize = minSize;
+		this.maxSize = maxSize;
+	}
+
+	/** Records the step that just ran, then drops in the next batch of bodies if one is due. **/
+	public void afterStep(long stepNanos){
+		steps++;
+		record(stepNanos);
+
+		if (steps % interval == 0)
+			spawnBatch();
+	}
+
+	/** Drops in the first batch. **/
+	public void start(){
+		spawnBatch();
+	}
+
+	private void record(long stepNanos){
+		sample.step = steps;
+		sample.stepMillis = stepNanos / 1000000f;
+		sample.proxies = world.getProxyCount();
+		// Box2D keeps a contact for every broad-phase pair whose fat AABBs overlap
+		sample.pairs = world.getContactCount();
+		sample.contacts = 0;
+		Array<Contact> contacts = world.getContactList();
+		for (int i = 0; i < contacts.size; i++){
+			if (contacts.get(i).isTouching())
+				sample.contacts++;
+		}
+
+		world.getBodies(bodies);
+		sample.bodies = 0;
+		sample.awake = 0;
+		for (int i = 0; i < bodies.size; i++){
+			Body body = bodies.get(i);
+			// Freed bodies stay in the world inactive, and still say they are awake
+			if (body.getType() == BodyType.StaticBody || !body.isActive())
+				continue;
+
+			sample.bodies++;
+			if (body.isAwake())
+				sample.awake++;
+		}
+
+		sample.islands = islands.count(world);
+		sample.largestIsland = islands.getLargest();
+		peakMillis = Math.max(peakMillis, sample.stepMillis);
+
+		csv.append(sample.step).append(',')
+		.append(sample.bodies).append(',')
+		.append(sample.stepMillis).append(',')
+		.append(sample.proxies).append(',')
+		.append(sample.pairs).append(',')
+		.append(sample.contacts).append(',')
+		.append(sample.awake).append(',')
+		.append(sample.islands).append(',')
+		.append(sample.largestIsland).append('\n');
+	}
+
+	private void spawnBatch(){
+		int count = Math.min(increment, maxBodies - spawned);
+
+		for (int i = 0; i < count; i++){
+			float size = minSize + random.nextFloat()*(maxSize - minSize);
+			float x = size + random.nextFloat()*(width - size*2);
+			float y = height*0.75f + random.nextFloat()*(height*0.25f - size);
+			spawner.spawn(spawned % 3, x, y, size, random);
+			spawned++;
+		}
+	}
+
+	public boolean isRampDone(){
+		return spawned >= maxBodies;
+	}
+
+	public int getSteps(){
+		return steps;
+	}
+
+	public float getPeakMillis(){
+		return peakMillis;
+	}
+
+	/** Writes every row recorded so far. **/
+	public void save(FileHandle file){
+		file.writeString(csv.toString(), false);
+	}
+
+	/**
+	 * Headless run: steps the world at a fixed rate until the ramp is done and
+	 * then for settleSteps more. Returns the total step time in milliseconds.
+	 */
+	public float run(float step, int velocityIterations, int positionIterations, int settleSteps){
+		float total = 0;
+		start();
+
+		int remaining = settleSteps;
+		while (remaining > 0){
+			long time = TimeUtils.nanoTime();
+			world.step(step, velocityIterations, positionIterations);
+			long nanos = TimeUtils.nanoTime() - time;
+
+			total += nanos / 1000000f;
+			afterStep(nanos);
+
+			if (isRampDone())
+				remaining--;
+		}
+		return total;
+	}
+
+	/**
+	 * Fills vertices with a convex polygon of 5 to 8 points on a circle of the
+	 * given radius and returns the vertex count.
+	 */
+	public static int polygon(Random random, float radius, float[] vertices){
+		int count = 5 + random.nextInt(4);
+		float slice = MathUtils.PI2 / count;
+
+		for (int i = 0; i < count; i++){
+			// Points stay on the circle, so jittering the angle keeps it convex
+			float angle = slice*i + (random.nextFloat() - 0.5f)*slice*0.5f;
+			vertices[i*2] = MathUtils.cos(angle)*radius;
+			vertices[i*2 + 1] = MathUtils.sin(angle)*radius;
+		}
+		return count;
+	}
+
+	/** Four static edges around 0, 0 - width, height. **/
+	public static void createBounds(World world, float width, float height){
+		BodyDef bodyDef = new BodyDef();
+		bodyDef.type = BodyType.StaticBody;
+		Body bounds = world.createBody(bodyDef);
+
+		EdgeShape edge = new EdgeShape();
+		edge.set(0, 0, width, 0);
+		bounds.createFixture(edge, 0);
+		edge.set(0, 0, 0, height);
+		bounds.createFixture(edge, 0);
+		edge.set(width, 0, width, height);
+		bounds.createFixture(edge, 0);
+		edge.set(0, height, width, height);
+		bounds.createFixture(edge, 0);
+		edge.dispose();
+	}
+
+	/** Plain bodies without user data, shapes are reused for every spawn. **/
+	public static class BareSpawner implements Spawner {
+		private final World world;
+		private final BodyDef bodyDef = new BodyDef();
+		private final FixtureDef fixtureDef = new FixtureDef();
+		private final CircleShape circle = new CircleShape();
+		private final PolygonShape polygon = new PolygonShape();
+		private final float[] vertices = new float[16];
+
+		public BareSpawner(World world) {
+			this.world = world;
+			bodyDef.type = BodyType.DynamicBody;
+			fixtureDef.density = 1;
+			fixtureDef.friction = 0.3f;
+			fixtureDef.restitution = 0.2f;
+		}
+
+		@Override
+		public void spawn(int shape, float x, float y, float size, Random random) {
+			bodyDef.position.set(x, y);
+
+			if (shape == CIRCLE){
+				circle.setRadius(size/2);
+				fixtureDef.shape = circle;
+			}
+			else if (shape == BOX){
+				polygon.setAsBox(size/2, size/2);
+				fixtureDef.shape = polygon;
+			}
+			else{
+				int count = polygon(random, size/2, vertices);
+				polygon.set(vertices, 0, count*2);
+				fixtureDef.shape = polygon;
+			}
+
+			world.createBody(bodyDef).createFixture(fixtureDef);
+		}
+
+		public void dispose(){
+			circle.dispose();
+			polygon.dispose();
+		}
+	}
+}
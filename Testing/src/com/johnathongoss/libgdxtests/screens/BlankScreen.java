@@ -12,10 +12,10 @@ import com.badlogic.gdx.input.GestureDetector;
 import com.badlogic.gdx.input.GestureDetector.GestureListener;
 import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.math.Vector2;
-import com.badlogic.gdx.physics.box2d.Box2DDebugRenderer;
 import com.badlogic.gdx.physics.box2d.World;
 import com.badlogic.gdx.scenes.scene2d.Stage;
 import com.johnathongoss.libgdxtests.MyGame;
+import com.johnathongoss.libgdxtests.physics.PhysicsWorld;
 
 public abstract class BlankScreen implements Screen, InputProcessor{
 
@@ -31,18 +31,16 @@ public abstract class BlankScreen implements Screen, InputProcessor{
 
 	/** 
 	 * 
-	 * Box2D
+	 * Box2D, see usePhysics()
 	 * 
 	 * */
 
-	public World world; 
-	Box2DDebugRenderer debugRenderer; 
+	protected PhysicsWorld physicsWorld;
+	protected World world; 
 
-	protected static final float BOX_STEP = 1/60f;  
-	protected static final int BOX_VELOCITY_ITERATIONS = 6;  
-	protected static final int BOX_POSITION_ITERATIONS = 2;  
-	protected static final float WORLD_TO_BOX = 0.02f;  
-	protected static final float BOX_WORLD_TO = 50f;  
+	protected static final float BOX_STEP = PhysicsWorld.STEP;  
+	protected static final float WORLD_TO_BOX = PhysicsWorld.WORLD_TO_BOX;  
+	protected static final float BOX_WORLD_TO = PhysicsWorld.BOX_TO_WORLD;  
 	protected boolean showDebug = false;
 
 	public BlankScreen(MyGame game) {
@@ -77,12 +75,34 @@ public abstract class BlankScreen implements Screen, InputProcessor{
 	@Override
 	public abstract void show();	
 
+	/**
+	 * Borrows the game's Box2D world, empty and with the given gravity. It is
+	 * handed back in dispose, so anything stepping it must have stopped by then.
+	 */
+	protected World usePhysics(float gravityX, float gravityY){
+		physicsWorld = game.getPhysics();
+		world = physicsWorld.obtain(gravityX, gravityY);
+		return world;
+	}
+
+	/** Box2D outlines on top of the scene while showDebug is on. **/
+	protected void renderPhysicsDebug(){
+		if (showDebug && physicsWorld != null)
+			physicsWorld.renderDebug(cam.combined);
+	}
+
 	@Override
 	public void dispose() {
 		stage.dispose();
 		stageui.dispose();
 		batch.dispose();	
 		batchui.dispose();
+
+		if (physicsWorld != null){
+			physicsWorld.release();
+			physicsWorld = null;
+			world = null;
+		}
 	}
 
 	@Override
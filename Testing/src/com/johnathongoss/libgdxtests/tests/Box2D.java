@@ -1,13 +1,15 @@
 package com.johnathongoss.libgdxtests.tests;
 
+import java.util.Random;
+
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.Input.Keys;
 import com.badlogic.gdx.InputMultiplexer;
 import com.badlogic.gdx.InputProcessor;
 import com.badlogic.gdx.graphics.GL20;
 import com.badlogic.gdx.graphics.OrthographicCamera;
+import com.badlogic.gdx.graphics.g2d.BitmapFont.HAlignment;
 import com.badlogic.gdx.graphics.g2d.Sprite;
-import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.input.GestureDetector;
 import com.badlogic.gdx.input.GestureDetector.GestureListener;
@@ -17,27 +19,40 @@ import com.badlogic.gdx.math.Vector3;
 import com.badlogic.gdx.physics.box2d.Body;
 import com.badlogic.gdx.physics.box2d.BodyDef;
 import com.badlogic.gdx.physics.box2d.BodyDef.BodyType;
-import com.badlogic.gdx.physics.box2d.Box2DDebugRenderer;
-import com.badlogic.gdx.physics.box2d.CircleShape;
-import com.badlogic.gdx.physics.box2d.Contact;
-import com.badlogic.gdx.physics.box2d.ContactImpulse;
-import com.badlogic.gdx.physics.box2d.ContactListener;
 import com.badlogic.gdx.physics.box2d.EdgeShape;
 import com.badlogic.gdx.physics.box2d.Fixture;
 import com.badlogic.gdx.physics.box2d.FixtureDef;
-import com.badlogic.gdx.physics.box2d.Manifold;
-import com.badlogic.gdx.physics.box2d.PolygonShape;
-import com.badlogic.gdx.physics.box2d.QueryCallback;
-import com.badlogic.gdx.physics.box2d.World;
 import com.badlogic.gdx.physics.box2d.joints.MouseJoint;
 import com.badlogic.gdx.physics.box2d.joints.MouseJointDef;
 import com.badlogic.gdx.scenes.scene2d.InputEvent;
 import com.badlogic.gdx.scenes.scene2d.ui.TextButton;
 import com.badlogic.gdx.scenes.scene2d.utils.ClickListener;
 import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.TimeUtils;
+import com.johnathongoss.libgdxtests.Assets;
 import com.johnathongoss.libgdxtests.ImageCache;
 import com.johnathongoss.libgdxtests.MyGame;
 import com.johnathongoss.libgdxtests.MyInputProcessor;
+import com.johnathongoss.libgdxtests.particles.FillRateMeter;
+import com.johnathongoss.libgdxtests.particles.MeteredBatch;
+import com.johnathongoss.libgdxtests.physics.BodyFactory;
+import com.johnathongoss.libgdxtests.physics.BodyFactory.Template;
+import com.johnathongoss.libgdxtests.physics.BodyIndex;
+import com.johnathongoss.libgdxtests.physics.BodyRegistry;
+import com.johnathongoss.libgdxtests.physics.ContactQueue;
+import com.johnathongoss.libgdxtests.physics.ContactQueue.Handler;
+import com.johnathongoss.libgdxtests.physics.FixedStepper;
+import com.johnathongoss.libgdxtests.physics.FixedStepper.StepListener;
+import com.johnathongoss.libgdxtests.physics.PhysicsThread;
+import com.johnathongoss.libgdxtests.physics.PhysicsThread.Command;
+import com.johnathongoss.libgdxtests.physics.PhysicsThread.CommandHandler;
+import com.johnathongoss.libgdxtests.physics.PhysicsThread.Snapshot;
+import com.johnathongoss.libgdxtests.physics.PhysicsWorld;
+import com.johnathongoss.libgdxtests.physics.ShapeLibrary;
+import com.johnathongoss.libgdxtests.physics.SleepMonitor;
+import com.johnathongoss.libgdxtests.physics.StressScenario;
+import com.johnathongoss.libgdxtests.physics.StressScenario.Spawner;
 import com.johnathongoss.libgdxtests.screens.MainMenu;
 
 public class Box2D extends BlankTestScreen implements GestureListener{
@@ -75,27 +90,63 @@ public class Box2D extends BlankTestScreen implements GestureListener{
 		
 		@Override
 		public boolean touchUp(int screenX, int screenY, int pointer, int button) {
-			Gdx.app.log("", "up");
-			// if a mouse joint exists we simply destroy it
-			if (mouseJoint != null) {
-				world.destroyJoint(mouseJoint);
-				mouseJoint = null;
-			}
+			if (physics.isRunning())
+				physics.post(PhysicsThread.TOUCH_UP, 0, 0);
+			else
+				release();
 			return false;
 			
 			
 		};
 	};
 
-	World world; 
-	Box2DDebugRenderer debugRenderer; 
+	private FillRateMeter meter = new FillRateMeter();
+	/** The shared world's, set in show **/
+	private FixedStepper stepper;
+	private StressScenario stress;
+	private final SleepMonitor monitor = new SleepMonitor();
+	static final String[] SLEEP_PRESETS = {"Sleep: Box2D", "Sleep: Loose", "Sleep: Eager"};
+	static final float[] SLEEP_LINEAR = {0, 0.05f, 0.15f}, SLEEP_ANGULAR = {0, 0.1f, 0.3f}, SLEEP_TIME = {0, 0.5f, 0.25f};
+	private int sleepPreset;
+	private TextButton sleepButton;
+	/** Rendering stops while every body sleeps, see updateIdle **/
+	private boolean idle, tinted;
+	private final Array<Body> stressBodies = new Array<Body>();
+	static final int TEMPLATE_SIZES = 4;
+	static final float STRESS_MIN_SIZE = 0.3f, STRESS_MAX_SIZE = 0.6f;
+	private BodyFactory factory;
+	private final Template[] ballTemplates = new Template[TEMPLATE_SIZES], boxTemplates = new Template[TEMPLATE_SIZES];
+	private final Template[][] stressTemplates = new Template[3][TEMPLATE_SIZES];
+	private TextButton stressButton, threadButton;
+	private PhysicsThread physics;
+	static final float IMPACT_IMPULSE = 0.5f;
+	private final ContactQueue contacts = new ContactQueue(1024);
+	static final float EXPLOSION_RADIUS = 3, EXPLOSION_IMPULSE = 8;
+	/** Where the bodies were after the last step, for picking **/
+	private BodyIndex index;
+	/** Contact events handled per step, read by the debug overlay **/
+	private volatile int begins, ends, impacts;
+	private int stepBegins, stepEnds, stepImpacts;
+	private final Handler contactHandler = new Handler() {
+		@Override
+		public void onContact(int type, Fixture fixtureA, Fixture fixtureB, float normalX, float normalY, float impulse) {
+			if (type == ContactQueue.BEGIN)
+				stepBegins++;
+			else if (type == ContactQueue.END)
+				stepEnds++;
+			else
+				stepImpacts++;
+		}
+	};
 
-	static final float BOX_STEP = 1/60f;  
-	static final int BOX_VELOCITY_ITERATIONS = 6;  
-	static final int BOX_POSITION_ITERATIONS = 2;  
-	static final float WORLD_TO_BOX = 0.02f;  
-	static final float BOX_WORLD_TO = 50f;  
-	private boolean showDebug = false;
+	/** Runs after every step on whichever thread steps the world. **/
+	private void handleContacts(){
+		stepBegins = stepEnds = stepImpacts = 0;
+		contacts.drain(contactHandler);
+		begins = stepBegins;
+		ends = stepEnds;
+		impacts = stepImpacts;
+	}
 	@Override  
 	public void show() {  
 		//Disable Ads for tests
@@ -112,12 +163,78 @@ public class Box2D extends BlankTestScreen implements GestureListener{
 			@Override
 			public void clicked(InputEvent event, float x, float y) {
 				showDebug = !showDebug;				
+				monitor.setCountIslands(showDebug);
 			}
 
 		});		
 		stageui.addActor(debugButton);	
 
-		bodies = new Array<Body>();
+		/*
+		 * Toggle Stress, ramps up the body count and writes per step metrics to box2d_stress.csv
+		 */
+
+		stressButton = new TextButton("Stress", skin);
+		stressButton.setBounds(width - BUTTON_WIDTH, height - BUTTON_HEIGHT*3, BUTTON_WIDTH, BUTTON_HEIGHT);
+		stressButton.addListener(new ClickListener() {
+			@Override
+			public void clicked(InputEvent event, float x, float y) {
+				// Stress adds bodies, which the physics thread does not allow
+				if (stress == null && !physics.isRunning())
+					startStress();
+				else if (stress != null)
+					stopStress();
+			}
+
+		});		
+		stageui.addActor(stressButton);	
+
+		/*
+		 * Toggle Threaded, steps the world on its own thread
+		 */
+
+		threadButton = new TextButton("Threaded", skin);
+		threadButton.setBounds(width - BUTTON_WIDTH, height - BUTTON_HEIGHT*4, BUTTON_WIDTH, BUTTON_HEIGHT);
+		threadButton.addListener(new ClickListener() {
+			@Override
+			public void clicked(InputEvent event, float x, float y) {
+				if (physics.isRunning()){
+					physics.stop();
+					stepper.reset();
+					threadButton.setText("Threaded");
+				}
+				else if (stress == null){
+					physics.start();
+					threadButton.setText("Render");
+				}
+			}
+
+		});		
+		stageui.addActor(threadButton);	
+
+		/*
+		 * Sleep tolerances, cycles through SLEEP_PRESETS
+		 */
+
+		sleepButton = new TextButton(SLEEP_PRESETS[0], skin);
+		sleepButton.setBounds(width - BUTTON_WIDTH, height - BUTTON_HEIGHT*5, BUTTON_WIDTH, BUTTON_HEIGHT);
+		sleepButton.addListener(new ClickListener() {
+			@Override
+			public void clicked(InputEvent event, float x, float y) {
+				// The monitor runs on the physics thread while it is on
+				if (physics.isRunning())
+					return;
+
+				sleepPreset = (sleepPreset + 1) % SLEEP_PRESETS.length;
+				if (sleepPreset == 0)
+					monitor.clearSleepTolerances();
+				else
+					monitor.setSleepTolerances(SLEEP_LINEAR[sleepPreset], SLEEP_ANGULAR[sleepPreset], SLEEP_TIME[sleepPreset]);
+				sleepButton.setText(SLEEP_PRESETS[sleepPreset]);
+			}
+
+		});		
+		stageui.addActor(sleepButton);	
+
 		addBackButton();         
 
 		InputMultiplexer im = new InputMultiplexer(stageui, stage,new GestureDetector(this), input);
@@ -126,45 +243,50 @@ public class Box2D extends BlankTestScreen implements GestureListener{
 
 		sprite = new Sprite(circle);
 
-		batch = new SpriteBatch();
-		debugRenderer = new Box2DDebugRenderer();
+		batch.dispose();
+		batch = new MeteredBatch(meter);
 		cam = new OrthographicCamera();
 
-		world = new World(new Vector2(0, -9.81f), true);	
-
-		world.setContactListener(new ContactListener() {
-
-			@Override
-			public void preSolve(Contact contact, Manifold oldManifold) {
-				// TODO Auto-generated method stub
-
-			}
+		usePhysics(0, -9.81f);
+		stepper = physicsWorld.getStepper();
 
+		// Read the new transforms so render can draw between the last two steps
+		stepper.setListener(new StepListener() {
 			@Override
-			public void postSolve(Contact contact, ContactImpulse impulse) {
-				// TODO Auto-generated method stub
-
+			public void afterStep() {
+				registry.afterStep();
+				index.update(registry);
+				monitor.afterStep(world, registry, BOX_STEP);
+				handleContacts();
+				if (stress != null)
+					stress.afterStep(stepper.getStepNanos());
 			}
+		});
 
+		// Input runs on the physics thread while it owns the world
+		physics = new PhysicsThread(world, registry, new CommandHandler() {
 			@Override
-			public void endContact(Contact contact) {
-				//contact.getFixtureA().getBody().getLinearVelocity().set(10, 10);
-				//contact.getFixtureA().getBody().applyLinearImpulse(new Vector2(1, 1), new Vector2(0, 0), true);
-
-				Vector2 dir = new Vector2();
-				dir.x = MathUtils.random(-3f, 3f);
-				dir.y = MathUtils.random(-1f, 1f);
-				//contact.getFixtureA().getBody().setLinearVelocity(dir);
-				//contact.getFixtureB().getBody().setTransform(position, angle)
-				//contact.getFixtureB().getBody().setLinearVelocity(dir.scl(-1, -1));
-				//contact.getFixtureB().getBody().setLinearVelocity(contact.getFixtureB().getBody().getLinearVelocity().add(contact.getFixtureA().getBody().getLinearVelocity()));
+			public void execute(Command command) {
+				if (command.type == PhysicsThread.TOUCH_DOWN)
+					grab(command.x, command.y);
+				else if (command.type == PhysicsThread.TOUCH_DRAGGED)
+					drag(command.x, command.y);
+				else if (command.type == PhysicsThread.LONG_PRESS)
+					explode(command.x, command.y);
+				else
+					release();
 			}
+		}, stepper);
 
+		// Callbacks only queue records, they are handled after the step
+		contacts.setImpactThreshold(IMPACT_IMPULSE);
+		world.setContactListener(contacts);
+		physics.setListener(new StepListener() {
 			@Override
-			public void beginContact(Contact contact) {
-				//contact.getFixtureA().getBody().getLinearVelocity().set(1, 1);
-				Gdx.app.log("", "Contact");
-
+			public void afterStep() {
+				index.update(registry);
+				monitor.afterStep(world, registry, BOX_STEP);
+				handleContacts();
 			}
 		});
 
@@ -183,39 +305,96 @@ public class Box2D extends BlankTestScreen implements GestureListener{
 		createWall(new Vector2(width, 0), new Vector2(width, height), 1, 0.2f, 0.8f, bodyDef, fixtureDef);
 		createWall(new Vector2(0, height), new Vector2(width, height), 1, 0.2f, 0.8f, bodyDef, fixtureDef);
 
+		factory = new BodyFactory(world, registry);
+		index = new BodyIndex(PhysicsWorld.toBox(width/15));
+		for (int i = 0; i < TEMPLATE_SIZES; i++){
+			float radius = width/30 + (width/15 - width/30)*i/(TEMPLATE_SIZES - 1);
+			ballTemplates[i] = BodyFactory.circle(PhysicsWorld.toBox(radius), ImageCache.getTexture("circle"));
+			ballTemplates[i].density = 2.5f;
+			ballTemplates[i].friction = .25f;
+			ballTemplates[i].restitution = .8f;
+
+			boxTemplates[i] = BodyFactory.box(PhysicsWorld.toBox(MathUtils.random(width/7, height/10)), PhysicsWorld.toBox(MathUtils.random(width/7, height/10)), 
+					ImageCache.getTexture("background"));
+			boxTemplates[i].restitution = .8f;
+		}
+
 		for (int i = 0; i < 12; i++)
-			createBall(MathUtils.random(0, width), MathUtils.random(0, height), MathUtils.random(width/15, width/30), 1f, 0f, .9f, bodyDef, fixtureDef);
+			createBall(MathUtils.random(0, width), MathUtils.random(0, height));
 
 		for (int i = 0; i < 3; i++)
-			creatBox(MathUtils.random(0, width), MathUtils.random(0, height), MathUtils.random(width/7, height/10), MathUtils.random(width/7, height/10), 1, 0.3f, .8f, bodyDef, fixtureDef);
-	}  
+			creatBox(MathUtils.random(0, width), MathUtils.random(0, height));
+
+		// Body editor shapes, decomposed on the first run and read from the binary cache after that
+		long start = TimeUtils.nanoTime();
+		ShapeLibrary shapes = ShapeLibrary.load(Gdx.files.internal("physics/shapes.json"), Gdx.files.local("physics/shapes.bin"));
+		Gdx.app.log("Box2D", "Shapes loaded in " + (TimeUtils.nanoTime() - start)/1000 + " us" + (shapes.isCached() ? " from cache" : ", cache written"));
 
-	private void creatBox(float x, float y, float w, float h,
-			float density, float friction, float restitution, BodyDef bodyDef, FixtureDef fixtureDef) {
-		bodyDef.position.set(WORLD_TO_BOX*x, WORLD_TO_BOX*y);
-		bodyDef.angularVelocity = 0;
+		Array<String> names = shapes.getNames();
+		for (int i = 0; i < names.size; i++){
+			Template template = BodyFactory.shape(shapes.get(names.get(i)), PhysicsWorld.toBox(width/10), ImageCache.getTexture("background"));
+			factory.obtain(template, PhysicsWorld.toBox(width*(i + 1)/(names.size + 1)), PhysicsWorld.toBox(height*0.75f), 0);
+		}
 
-		PolygonShape boxShape = new PolygonShape();
-		boxShape.setAsBox(WORLD_TO_BOX*w/2, WORLD_TO_BOX*h/2);
+		// Pickable before the first step
+		index.update(registry);
+	}  
 
-		fixtureDef.shape = boxShape;
-		fixtureDef.density = density;
-		fixtureDef.friction = friction;
-		fixtureDef.restitution = restitution;
+	/** Box at x, y in pixels, in one of the template sizes so it can be recycled. **/
+	private Body creatBox(float x, float y) {
+		return factory.obtain(boxTemplates[MathUtils.random(TEMPLATE_SIZES - 1)], PhysicsWorld.toBox(x), PhysicsWorld.toBox(y), 0);
+	}
 
-		Sprite sprite = new Sprite(ImageCache.getTexture("background"));
-		sprite.setSize(WORLD_TO_BOX*w, WORLD_TO_BOX*h);
-		sprite.setOrigin(sprite.getWidth()/2, sprite.getHeight()/2);
+	/** Ball at x, y in pixels, in one of the template sizes so it can be recycled. **/
+	private Body createBall(float x, float y) {
+		return factory.obtain(ballTemplates[MathUtils.random(TEMPLATE_SIZES - 1)], PhysicsWorld.toBox(x), PhysicsWorld.toBox(y), 0);
+	}
 
-		Body box = world.createBody(bodyDef);
+	private void startStress(){
+		// Stress sizes are bucketed into templates, polygons get one fixed outline per bucket
+		if (stressTemplates[0][0] == null){
+			Random random = new Random(1337);
+			float[] vertices = new float[16];
+
+			for (int i = 0; i < TEMPLATE_SIZES; i++){
+				float size = STRESS_MIN_SIZE + (STRESS_MAX_SIZE - STRESS_MIN_SIZE)*(i + 0.5f)/TEMPLATE_SIZES;
+				stressTemplates[StressScenario.CIRCLE][i] = BodyFactory.circle(size/2, ImageCache.getTexture("circle"));
+				stressTemplates[StressScenario.BOX][i] = BodyFactory.box(size, size, ImageCache.getTexture("background"));
+				stressTemplates[StressScenario.POLYGON][i] = BodyFactory.polygon(vertices, StressScenario.polygon(random, size/2, vertices), 
+						ImageCache.getTexture("background"));
+			}
+		}
 
-		box.setUserData(sprite);
-		box.createFixture(fixtureDef);
+		// Same seed every time so runs on different devices are comparable
+		stress = new StressScenario(world, new Spawner() {
+			@Override
+			public void spawn(int shape, float x, float y, float size, Random random) {
+				int bucket = (int)((size - STRESS_MIN_SIZE)/(STRESS_MAX_SIZE - STRESS_MIN_SIZE)*TEMPLATE_SIZES);
+				bucket = MathUtils.clamp(bucket, 0, TEMPLATE_SIZES - 1);
+				stressBodies.add(factory.obtain(stressTemplates[shape][bucket], x, y, 0));
+			}
+		}, PhysicsWorld.toBox(width), PhysicsWorld.toBox(height), 1337);
+		stress.setSize(STRESS_MIN_SIZE, STRESS_MAX_SIZE);
+		stress.start();
+		stressButton.setText("Stop");
+	}
 
-		boxShape.dispose();		
+	private void stopStress(){
+		stress.save(Gdx.files.local("box2d_stress.csv"));
+		Gdx.app.log("Box2D", "Stress: " + stress.getSteps() + " steps, peak " + stress.getPeakMillis() + " ms, saved to box2d_stress.csv");
+		stress = null;
+		stressButton.setText("Stress");
+
+		// Hand the bodies back, the next run reuses them instead of creating new ones
+		release();
+		for (int i = 0; i < stressBodies.size; i++){
+			monitor.forget(stressBodies.get(i));
+			factory.free(stressBodies.get(i));
+		}
+		stressBodies.clear();
 	}
 
-	private void createScene(BodyDef bodyDef, FixtureDef fixtureDef) {
+	private void createScene() {
 
 		//createWall(new Vector2(0, 0), cam.viewportWidth, 0, 0.0f);
 		//createWall(new Vector2(0, cam.viewportHeight), cam.viewportWidth, 0f, 0);
@@ -225,68 +404,16 @@ public class Box2D extends BlankTestScreen implements GestureListener{
 		for (int i = 0; i < 25; i++){			
 			createBall(
 					MathUtils.random(0, 3), 
-					MathUtils.random(0, 3), 
-					MathUtils.random(0.2f, 1f), 
-					0.8f, 	//Density
-					0.10f, 	//Friction
-					0.82f,
-					bodyDef,
-					fixtureDef); 	//Restitution
+					MathUtils.random(0, 3)); 
 		}
 
 	}
 
-	private void createBall(float x, float y, float radius,
-			float density, float friction, float restitution, BodyDef bodyDef, FixtureDef fixtureDef) {
-
-		bodyDef.type = BodyType.DynamicBody;
-		bodyDef.position.x = x*WORLD_TO_BOX;
-		bodyDef.position.y = y*WORLD_TO_BOX;
-		bodyDef.angularVelocity = 0;
-
-		CircleShape ballShape = new CircleShape();
-		ballShape.setRadius(radius*WORLD_TO_BOX);
-
-		fixtureDef.shape = ballShape;
-		fixtureDef.density = 2.5f;
-		fixtureDef.restitution = .8f;
-		fixtureDef.friction = .25f;
-
-
-
-		Sprite sprite = new Sprite(ImageCache.getTexture("circle"));
-		sprite.setSize(radius*2*WORLD_TO_BOX, radius*2*WORLD_TO_BOX);
-		sprite.setOrigin(sprite.getWidth()/2, sprite.getHeight()/2);
-
-		Body ball = world.createBody(bodyDef);
-
-		ball.setUserData(sprite);
-		ball.createFixture(fixtureDef);
-		ballShape.dispose();
-
-		//		CircleShape dynamicCircle = new CircleShape();  
-		//		dynamicCircle.setRadius(radius*WORLD_TO_BOX); 
-		//
-		//		FixtureDef fixtureDef = new FixtureDef();  		
-		//		fixtureDef.shape = dynamicCircle;  
-		//		fixtureDef.density = density;  
-		//		fixtureDef.friction = friction;  
-		//		fixtureDef.restitution = restitution;  
-		//
-		//		BodyDef bodyDef = new BodyDef();  
-		//		bodyDef.type = BodyType.DynamicBody;  
-		//		bodyDef.position.set(x*WORLD_TO_BOX, y*WORLD_TO_BOX);  
-		//		Body body = world.createBody(bodyDef);  	
-		//
-		//		body.createFixture(fixtureDef).setUserData(new Box2DSprite(sprite)); 
-
-	}
-
 	private void createWall(Vector2 v1, Vector2 v2,float density, float friction, float restitutuion, BodyDef bodyDef, FixtureDef fixtureDef) {
 		bodyDef.type = BodyType.StaticBody;
 
 		EdgeShape groundShape = new EdgeShape();
-		groundShape.set(v1.x*WORLD_TO_BOX, v1.y*WORLD_TO_BOX, v2.x*WORLD_TO_BOX, v2.y*WORLD_TO_BOX);
+		groundShape.set(PhysicsWorld.toBox(v1.x), PhysicsWorld.toBox(v1.y), PhysicsWorld.toBox(v2.x), PhysicsWorld.toBox(v2.y));
 
 		fixtureDef.shape = groundShape;
 		fixtureDef.density = density;
@@ -301,52 +428,111 @@ public class Box2D extends BlankTestScreen implements GestureListener{
 
 	@Override  
 	public void dispose() {  
+		Gdx.app.log("Box2D", "Fill rate " + meter.summary());
+		Gdx.graphics.setContinuousRendering(true);
+		if (physics.isRunning())
+			physics.stop();
+		if (stress != null)
+			stopStress();
+		factory.dispose();
+		registry.clear();
+		monitor.clear();
+
+		// Hands the world back, emptied, once nothing steps it
 		super.dispose();
-		debugRenderer.dispose();
-		world.dispose();
 	}  
-	Array<Body> bodies;
+	BodyRegistry registry = new BodyRegistry();
 	protected TextureRegion circle = ImageCache.getTexture("circle");
 	protected Sprite sprite;
 	@Override  
 	public void render(float delta) {    
 		Gdx.gl.glClear(GL20.GL_COLOR_BUFFER_BIT);
-		world.getBodies(bodies);
-		batch.begin();
-		for (Body body : bodies)
-			if (body.getUserData() != null && body.getUserData() instanceof Sprite){
-				Sprite sprite = (Sprite)body.getUserData();
-				sprite.setPosition(body.getPosition().x - sprite.getWidth()/2, body.getPosition().y - sprite.getHeight()/2);
-				sprite.setRotation(body.getAngle() * MathUtils.radiansToDegrees);
-				sprite.draw(batch);
-
+		Snapshot snapshot = null;
+		if (physics.isRunning())
+			snapshot = physics.getSnapshot();
+		else
+			stepper.update(world, delta);
+
+		// Bodies that haven't slept for a while show red in debug mode
+		if (snapshot == null && (showDebug || tinted)){
+			for (int i = 0; i < registry.size(); i++){
+				boolean restless = showDebug && monitor.isRestless(registry.getBody(i));
+				registry.getSprite(i).setColor(1, restless ? 0.3f : 1, restless ? 0.3f : 1, 1);
 			}
+			tinted = showDebug;
+		}
+
+		meter.begin(width, height);
+		meter.setPixelScale(cam);
+		meter.setTag("Bodies");
+		batch.begin();
+		if (snapshot != null)
+			registry.draw(batch, physics.getAlpha(snapshot), snapshot.previous, snapshot.current, snapshot.size);
+		else
+			registry.draw(batch, stepper.getAlpha());
 
 		batch.end();
+		meter.end();
 
-		if (showDebug)
-			debugRenderer.render(world, cam.combined);
+		// The debug renderer reads the world, which belongs to the physics thread while it runs
+		if (snapshot == null)
+			renderPhysicsDebug();
 
 		stageui.act(delta);
 		stageui.draw();
 
+		updateText();
 		batchui.begin();
 		renderTestName(batchui);
+		renderText();
 		batchui.end();
 
-		world.step(delta, BOX_VELOCITY_ITERATIONS, BOX_POSITION_ITERATIONS);
+		updateIdle(snapshot == null);
 	}  
 
+	/**
+	 * Once every body sleeps and nothing is holding one, frames would all look
+	 * the same, so stop rendering until input comes in (which libgdx turns into
+	 * a frame, and the step in it may wake something up again).
+	 */
+	private void updateIdle(boolean stepping){
+		boolean idle = stepping && stress == null && mouseJoint == null
+				&& registry.size() > 0 && registry.getAwakeCount() == 0;
+
+		if (idle != this.idle){
+			this.idle = idle;
+			Gdx.graphics.setContinuousRendering(!idle);
+		}
+	}
+
 	@Override
 	protected void updateText() {
-		// TODO Auto-generated method stub
-
+		Text.clear();
+		if (physics.isRunning()){
+			Snapshot snapshot = physics.getSnapshot();
+			Text.add("Physics thread: " + snapshot.stepMillis + " ms, awake " + snapshot.awake);
+		}
+		if (stress != null){
+			StressScenario.Sample sample = stress.sample;
+			Text.add("Bodies: " + sample.bodies + ", awake " + sample.awake);
+			Text.add("Step: " + sample.stepMillis + " ms, peak " + stress.getPeakMillis());
+			Text.add("Pairs: " + sample.pairs + ", contacts " + sample.contacts);
+			Text.add("Islands: " + sample.islands + ", largest " + sample.largestIsland);
+			Text.add("Factory: " + factory.getCreated() + " created, " + factory.getReused() + " reused");
+		}
+		if (showDebug){
+			Text.add("Awake: " + monitor.awake + ", asleep " + monitor.asleep + ", restless " + monitor.restless);
+			Text.add("Islands: " + monitor.islandCount + ", largest " + monitor.largestIsland + ", put to sleep " + monitor.forced);
+			Text.add("Contacts/step: " + begins + " begin, " + ends + " end, " + impacts + " impacts");
+			meter.report(Text);
+		}
 	}
 
 	@Override
 	protected void renderText() {
-		// TODO Auto-generated method stub
-
+		for (int i = 0; i < Text.size; i++){
+			Assets.font24.drawMultiLine(batchui, Text.get(i), 0, height - BUTTON_HEIGHT*6 - i*24, width, HAlignment.RIGHT);
+		}
 	}
 
 	@Override
@@ -355,8 +541,8 @@ public class Box2D extends BlankTestScreen implements GestureListener{
 		cam.viewportWidth = width;
 		//Gdx.app.log("", "" + cam.viewportWidth);
 		cam.viewportHeight = height;
-		cam.position.x = WORLD_TO_BOX*width/2;
-		cam.position.y = WORLD_TO_BOX* height/2;		
+		cam.position.x = PhysicsWorld.toBox(width)/2;
+		cam.position.y = PhysicsWorld.toBox(height)/2;		
 		cam.zoom = WORLD_TO_BOX;
 		cam.update();
 
@@ -375,33 +561,31 @@ public class Box2D extends BlankTestScreen implements GestureListener{
 	/** temp vector **/
 	protected Vector2 tmp = new Vector2();
 
-	/** we instantiate this vector and the callback here so we don't irritate the GC **/
+	/** we instantiate this vector and the query results here so we don't irritate the GC **/
 	Vector3 testPoint = new Vector3();
-	QueryCallback callback = new QueryCallback() {
-		@Override public boolean reportFixture (Fixture fixture) {
-			// if the hit point is inside the fixture of the body
-			// we report it
-			if (fixture.testPoint(testPoint.x, testPoint.y)) {
-				hitBody = fixture.getBody();
-				return false;
-			} else
-				return true;
-		}
-	};
+	/** only used by whichever thread steps the world **/
+	IntArray queryResults = new IntArray();
 
 	@Override
 	public boolean touchDown(float x, float y, int pointer, int button) {
 		// translate the mouse coordinates to world coordinates
 		cam.unproject(testPoint.set(x, y, 0));
-		// ask the world which bodies are within the given
-		// bounding box around the mouse pointer
-		hitBody = null;
-		world.QueryAABB(callback, testPoint.x - 0.0001f, testPoint.y - 0.0001f, testPoint.x + 0.0001f, testPoint.y + 0.0001f);
 
-		if (hitBody == groundBody) hitBody = null;
+		if (physics.isRunning())
+			physics.post(PhysicsThread.TOUCH_DOWN, testPoint.x, testPoint.y);
+		else
+			grab(testPoint.x, testPoint.y);
+		return false;
+	}
+
+	/** Attaches a mouse joint to the body at x, y in box units, if any. **/
+	private void grab(float x, float y) {
+		// ask the index which body is under the mouse pointer, it was filled
+		// after the last step so only the bodies drawn there are tested
+		hitBody = index.pick(x, y, queryResults);
 
 		// ignore kinematic bodies, they don't work with the mouse joint
-		if (hitBody != null && hitBody.getType() == BodyType.KinematicBody) return false;
+		if (hitBody != null && hitBody.getType() == BodyType.KinematicBody) return;
 
 		// if we hit something we create a new mouse joint
 		// and attach it to the hit body.
@@ -410,14 +594,25 @@ public class Box2D extends BlankTestScreen implements GestureListener{
 			def.bodyA = groundBody;
 			def.bodyB = hitBody;
 			def.collideConnected = true;
-			def.target.set(testPoint.x, testPoint.y);
+			def.target.set(x, y);
 			def.maxForce = 1000.0f * hitBody.getMass();
 
 			mouseJoint = (MouseJoint)world.createJoint(def);
 			hitBody.setAwake(true);
 		}
+	}
 
-		return false;
+	private void drag(float x, float y) {
+		if (mouseJoint != null)
+			mouseJoint.setTarget(target.set(x, y));
+	}
+
+	private void release() {
+		// if a mouse joint exists we simply destroy it
+		if (mouseJoint != null) {
+			world.destroyJoint(mouseJoint);
+			mouseJoint = null;
+		}
 	}
 
 	@Override
@@ -428,10 +623,33 @@ public class Box2D extends BlankTestScreen implements GestureListener{
 
 	@Override
 	public boolean longPress(float x, float y) {
-		// TODO Auto-generated method stub
+		cam.unproject(testPoint.set(x, y, 0));
+
+		if (physics.isRunning())
+			physics.post(PhysicsThread.LONG_PRESS, testPoint.x, testPoint.y);
+		else
+			explode(testPoint.x, testPoint.y);
 		return false;
 	}
 
+	/** Pushes every body near x, y away from it, found through the index. **/
+	private void explode(float x, float y) {
+		release();
+		index.queryRadius(x, y, EXPLOSION_RADIUS, queryResults);
+
+		for (int i = 0; i < queryResults.size; i++){
+			Body body = index.getBody(queryResults.get(i));
+			if (!body.isActive())
+				continue;
+
+			Vector2 center = body.getWorldCenter();
+			float dx = center.x - x, dy = center.y - y;
+			float distance = Math.max((float)Math.sqrt(dx*dx + dy*dy), 0.1f);
+			float impulse = EXPLOSION_IMPULSE*body.getMass()*(1 - Math.min(distance/EXPLOSION_RADIUS, 1));
+			body.applyLinearImpulse(dx/distance*impulse, dy/distance*impulse, center.x, center.y, true);
+		}
+	}
+
 	@Override
 	public boolean fling(float velocityX, float velocityY, int button) {
 		// TODO Auto-generated method stub
@@ -444,10 +662,11 @@ public class Box2D extends BlankTestScreen implements GestureListener{
 		// if a mouse joint exists we simply update
 		// the target of the joint based on the new
 		// mouse coordinates
-		if (mouseJoint != null) {
-			cam.unproject(testPoint.set(x, y, 0));
-			mouseJoint.setTarget(target.set(testPoint.x, testPoint.y));
-		}
+		cam.unproject(testPoint.set(x, y, 0));
+		if (physics.isRunning())
+			physics.post(PhysicsThread.TOUCH_DRAGGED, testPoint.x, testPoint.y);
+		else
+			drag(testPoint.x, testPoint.y);
 		return false;
 	}
 
@@ -498,12 +717,10 @@ public class Box2D extends BlankTestScreen implements GestureListener{
 
 	@Override
 	public boolean touchUp(int screenX, int screenY, int pointer, int button) {
-		Gdx.app.log("", "up");
-		// if a mouse joint exists we simply destroy it
-		if (mouseJoint != null) {
-			world.destroyJoint(mouseJoint);
-			mouseJoint = null;
-		}
+		if (physics.isRunning())
+			physics.post(PhysicsThread.TOUCH_UP, 0, 0);
+		else
+			release();
 		return false;
 	}
 
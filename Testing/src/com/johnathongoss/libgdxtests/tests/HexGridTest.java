@@ -1,37 +1,63 @@
 package com.johnathongoss.libgdxtests.tests;
 
+import java.io.IOException;
+
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.InputMultiplexer;
 import com.badlogic.gdx.Screen;
 import com.badlogic.gdx.Input.Keys;
+import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.graphics.GL10;
 import com.badlogic.gdx.graphics.OrthographicCamera;
 import com.badlogic.gdx.graphics.g2d.BitmapFont.HAlignment;
-import com.badlogic.gdx.graphics.g2d.Batch;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.input.GestureDetector;
 import com.badlogic.gdx.input.GestureDetector.GestureListener;
 import com.badlogic.gdx.math.Vector2;
-import com.badlogic.gdx.scenes.scene2d.Actor;
+import com.badlogic.gdx.math.Vector3;
 import com.badlogic.gdx.scenes.scene2d.InputEvent;
 import com.badlogic.gdx.scenes.scene2d.Stage;
-import com.badlogic.gdx.scenes.scene2d.Touchable;
 import com.badlogic.gdx.scenes.scene2d.ui.TextButton;
-import com.badlogic.gdx.scenes.scene2d.utils.ActorGestureListener;
 import com.badlogic.gdx.scenes.scene2d.utils.ClickListener;
 import com.johnathongoss.libgdxtests.Assets;
 import com.johnathongoss.libgdxtests.ImageCache;
 import com.johnathongoss.libgdxtests.MyGame;
 import com.johnathongoss.libgdxtests.MyInputProcessor;
+import com.johnathongoss.libgdxtests.hex.HexChunkFile;
+import com.johnathongoss.libgdxtests.hex.HexLabels;
+import com.johnathongoss.libgdxtests.hex.HexLayout;
+import com.johnathongoss.libgdxtests.hex.HexMap;
+import com.johnathongoss.libgdxtests.hex.HexRegions;
+import com.johnathongoss.libgdxtests.hex.HexRenderer;
+import com.johnathongoss.libgdxtests.hex.HexWorld;
+import com.johnathongoss.libgdxtests.hex.HexWorldRenderer;
 import com.johnathongoss.libgdxtests.screens.MainMenu;
 
 public class HexGridTest implements Screen{
 
 	MyGame game;
 	SpriteBatch batch;
-	Stage stageui, stageaction, stagehexes;
+	Stage stageui;
 	OrthographicCamera cam, cam_ui;
 	HexGrid hexGrid;
+	/** Draws the hexes, and in debug their coordinates **/
+	HexRenderer hexRenderer;
+	HexLabels hexLabels;
+	static final int HEX_RENDER_SLOTS = 32;
+	/** Connected groups of selected hexes **/
+	HexRegions regions;
+
+	/**
+	 * World mode streams a big map from disk, only the chunks around the
+	 * camera are in memory, so opening it takes as long whatever its size
+	 */
+	static final int WORLD_SIZE = 4000, WORLD_CHUNK = 16, WORLD_MARGIN = 1;
+	static final long WORLD_BUDGET = 4 << 20;
+	HexWorld world;
+	HexWorldRenderer worldRenderer;
+	boolean streaming;
+	long worldHover = -1;
 
 	protected CameraController controller;
 	protected GestureDetector gestureDetector;
@@ -47,19 +73,72 @@ public class HexGridTest implements Screen{
 			}
 			return false;
 		}
+
+		@Override
+		public boolean mouseMoved(int screenX, int screenY) {
+			if (streaming)
+				worldHover = pickWorld(screenX, screenY);
+			else
+				hover = pick(screenX, screenY);
+			return false;
+		}
+
+		@Override
+		public boolean touchDown(int screenX, int screenY, int pointer, int button) {
+			dragged = -1;
+			return false;
+		}
+
+		@Override
+		public boolean touchDragged(int screenX, int screenY, int pointer) {
+			// Dragging pans the camera when the grid doesn't fit, otherwise it selects
+			if (controller.allowCameraPanning)
+				return false;
+
+			int hex = pick(screenX, screenY);
+			if (hex != -1 && hex != dragged)
+				hexGrid.map.setFlag(hex, HexMap.SELECTED, true);
+			dragged = hex;
+			hover = hex;
+			return false;
+		}
 	};
 	protected boolean debug = false;
 
+	/** Hex under the mouse and the last one drag selected, -1 for none **/
+	int hover = -1, dragged = -1;
+	Vector3 touchPoint = new Vector3();
+
+	/** The used hex at a screen position, or -1. **/
+	int pick(float screenX, float screenY){
+		cam.unproject(touchPoint.set(screenX, screenY, 0));
+		return hexGrid.pick(touchPoint.x, touchPoint.y);
+	}
+
+	/** The used world hex at a screen position as a HexWorld key, or -1. **/
+	long pickWorld(float screenX, float screenY){
+		cam.unproject(touchPoint.set(screenX, screenY, 0));
+		return hexGrid.layout.pick(world, touchPoint.x, touchPoint.y);
+	}
+
 	public HexGridTest(MyGame game) {
 		this.game = game;		
 		batch = new SpriteBatch();
 		cam = new OrthographicCamera();
 		cam_ui = new OrthographicCamera();
 		hexGrid = new HexGrid(game.getWidth(), game.getHeight());		
+		hexRenderer = new HexRenderer(hexGrid.map, hexGrid.layout, new HexRenderer.Style() {
+			final TextureRegion hex = ImageCache.getTexture("hex"), selected = ImageCache.getTexture("hex_selected");
+
+			@Override
+			public TextureRegion getRegion(HexMap map, int index) {
+				return map.hasFlag(index, HexMap.SELECTED) ? selected : hex;
+			}
+		}, HEX_RENDER_SLOTS);
+		hexLabels = new HexLabels(hexGrid.map, hexGrid.layout, Assets.font24, 60, HEX_RENDER_SLOTS);
+		regions = new HexRegions(hexGrid.map, HexRegions.SELECTED);
 
 		stageui = new Stage(game.getWidth(), game.getHeight(), true);
-		stageaction = new Stage(game.getWidth(), game.getHeight(), true);
-		stagehexes = new Stage(game.getWidth(), game.getHeight(), true);
 
 	}
 
@@ -69,11 +148,20 @@ public class HexGridTest implements Screen{
 
 		controller.update();
 
-		stagehexes.act(delta);
-		stagehexes.draw();
-
-		stageaction.act(delta);
-		stageaction.draw();
+		cam.update();
+		if (streaming){
+			world.load(hexGrid.layout, cam, WORLD_MARGIN);
+			worldRenderer.render(cam);
+		}
+		else
+			hexRenderer.render(cam);
+
+		if (debug && !streaming){
+			batch.setProjectionMatrix(cam.combined);
+			batch.begin();
+			hexLabels.draw(batch, cam);
+			batch.end();
+		}
 
 		stageui.act(delta);
 		stageui.draw();		
@@ -87,12 +175,29 @@ public class HexGridTest implements Screen{
 		cam_ui.update();
 		batch.setProjectionMatrix(cam_ui.combined);
 		batch.begin();
-		//hexGrid.draw(batch);
 
 		// UI --------------- /
 
 		Assets.font24.drawMultiLine(batch, "Hex Grid Test |", 0, Assets.font24.getLineHeight(), game.getWidth(), HAlignment.RIGHT);
 
+		if (streaming){
+			if (worldHover != -1)
+				Assets.font24.drawMultiLine(batch, "Hex [" + world.getQ(worldHover) + ", " + world.getR(worldHover) + "]", 
+						0, Assets.font24.getLineHeight()*2, game.getWidth(), HAlignment.RIGHT);
+			if (debug)
+				Assets.font24.drawMultiLine(batch, "Chunks: " + worldRenderer.getDrawn() + " drawn, " + worldRenderer.getRebuilt() + " rebuilt, " 
+						+ world.getResident() + " of " + world.getMaxResident() + " resident, " + world.getLoads() + " loads", 
+						0, Assets.font24.getLineHeight()*3, game.getWidth(), HAlignment.RIGHT);
+		}
+		else if (hover != -1)
+			Assets.font24.drawMultiLine(batch, "Hex [" + hexGrid.map.getQ(hover) + ", " + hexGrid.map.getR(hover) + "], selected group of " + regions.getSize(hover), 
+					0, Assets.font24.getLineHeight()*2, game.getWidth(), HAlignment.RIGHT);
+		if (debug && !streaming){
+			Assets.font24.drawMultiLine(batch, "Chunks: " + hexRenderer.getDrawn() + " drawn, " + hexRenderer.getRebuilt() + " rebuilt, " + hexLabels.getRebuilt() + " labels rebuilt", 
+					0, Assets.font24.getLineHeight()*3, game.getWidth(), HAlignment.RIGHT);
+			Assets.font24.drawMultiLine(batch, "Selected groups: " + regions.getRegionCount(), 0, Assets.font24.getLineHeight()*4, game.getWidth(), HAlignment.RIGHT);
+		}
+
 		//Assets.font24.drawMultiLine(batch, game.input.getX() + ", " + game.input.getY(), 0, game.getHeight(), game.getWidth(), HAlignment.RIGHT);
 		//Assets.font24.drawMultiLine(batch, "Cam: " + cam.position.x + ", " + cam.position.y, 0, game.getHeight() - 24, game.getWidth(), HAlignment.RIGHT);
 
@@ -115,33 +220,20 @@ public class HexGridTest implements Screen{
 		 */			
 
 		cam.setToOrtho(false, game.getWidth(), game.getHeight());
-		cam.position.set(hexGrid.getWidth(), hexGrid.getHeight()/2, 0);
-
 
-		controller = new CameraController(hexGrid.getWidth() + (hexGrid.getWidth()/2 - game.getWidth()/2), hexGrid.getWidth() - (hexGrid.getWidth()/2 - game.getWidth()/2), hexGrid.getHeight()/2 + (hexGrid.getHeight()/2 - game.getHeight()/4), hexGrid.getHeight()/2 - (hexGrid.getHeight()/2 - game.getHeight()/4));
-		// Camera needs to be moved (small screen)
-		if (game.getWidth() < hexGrid.getWidth())
-			controller.allowCameraPanning  = true;
+		controller = new CameraController(0, 0, 0, 0);
+		useGrid();
 
 		gestureDetector = new GestureDetector(20, 0.5f, 2, 0.15f, controller);
 
-		stagehexes.setCamera(cam);
 		cam_ui.setToOrtho(false, game.getWidth(), game.getHeight());
 
-		InputMultiplexer im = new InputMultiplexer(gestureDetector, stageui, stagehexes, input);		
+		InputMultiplexer im = new InputMultiplexer(gestureDetector, stageui, input);		
 		Gdx.input.setInputProcessor(im);
 
 		//We dont want the back button to exit the app on this screen	
 		Gdx.input.setCatchBackKey(true); 
 
-		for (int q = 0; q < hexGrid.ARRAY_WIDTH; q++){
-
-			for (int r = 0; r < hexGrid.ARRAY_HEIGHT; r++){
-				stagehexes.addActor(hexGrid.getHex(q, r));
-			}
-
-		}	
-
 		TextButton button = new TextButton("Back", Assets.skin);
 		button.setWidth(Gdx.app.getGraphics().getWidth()/7);
 		button.setHeight(Gdx.app.getGraphics().getHeight()/8);				
@@ -169,12 +261,88 @@ public class HexGridTest implements Screen{
 		button.setPosition(game.getWidth() - game.getButtonWidth(), Gdx.app.getGraphics().getHeight() - button.getHeight()*2);
 		stageui.addActor(button);
 
+		button = new TextButton("World", Assets.skin);
+		button.setWidth(Gdx.app.getGraphics().getWidth()/7);
+		button.setHeight(Gdx.app.getGraphics().getHeight()/8);				
+		button.addListener(new ClickListener() {			
+
+			@Override
+			public void clicked(InputEvent event, float x, float y) {
+
+				if (streaming)
+					useGrid();
+				else
+					useWorld();
+			}
+		});	
+		button.setPosition(game.getWidth() - game.getButtonWidth(), Gdx.app.getGraphics().getHeight() - button.getHeight()*3);
+		stageui.addActor(button);
+
+	}
+
+	/** Back to the small in-memory grid, the camera bounds around it. **/
+	void useGrid(){
+		streaming = false;
+		worldHover = -1;
+		cam.position.set(hexGrid.getWidth(), hexGrid.getHeight()/2, 0);
+		controller.setBounds(hexGrid.getWidth() + (hexGrid.getWidth()/2 - game.getWidth()/2), hexGrid.getWidth() - (hexGrid.getWidth()/2 - game.getWidth()/2), hexGrid.getHeight()/2 + (hexGrid.getHeight()/2 - game.getHeight()/4), hexGrid.getHeight()/2 - (hexGrid.getHeight()/2 - game.getHeight()/4));
+		// Camera needs to be moved (small screen)
+		controller.allowCameraPanning = game.getWidth() < hexGrid.getWidth();
+	}
+
+	/**
+	 * To the streamed world, opened the first time and made if there is no
+	 * file yet. The camera bounds are the world's, and render() loads the
+	 * chunks around wherever they let the camera go.
+	 */
+	void useWorld(){
+		if (world == null){
+			HexChunkFile file = openWorld(Gdx.files.local("hexworld.bin"));
+			if (file == null)
+				return;
+
+			world = new HexWorld(file, WORLD_BUDGET);
+			worldRenderer = new HexWorldRenderer(world, hexGrid.layout, new HexWorldRenderer.Style() {
+				final TextureRegion hex = ImageCache.getTexture("hex"), selected = ImageCache.getTexture("hex_selected");
+
+				@Override
+				public TextureRegion getRegion(HexWorld world, int q, int r) {
+					return world.hasFlag(q, r, HexMap.SELECTED) ? selected : hex;
+				}
+			}, HEX_RENDER_SLOTS);
+		}
+
+		streaming = true;
+		hover = -1;
+
+		// Rows shift half a hex each, so the rectangle's left edge is half the rows across
+		HexLayout layout = hexGrid.layout;
+		float minX = layout.columnWidth*world.file.rows/2, maxX = minX + layout.columnWidth*(world.file.columns - 1);
+		float maxY = layout.rowHeight*(world.file.rows - 1);
+		cam.position.set((minX + maxX)/2, maxY/2, 0);
+		controller.setBounds(maxX - game.getWidth()/2, minX + game.getWidth()/2, maxY - game.getHeight()/2, game.getHeight()/2);
+		controller.allowCameraPanning = true;
+	}
+
+	private HexChunkFile openWorld(FileHandle handle){
+		try {
+			if (handle.exists()){
+				try {
+					return HexChunkFile.open(handle);
+				} catch (IOException e) {
+					Gdx.app.log("Hex", "Replacing broken world " + handle.path() + ": " + e.getMessage());
+				}
+			}
+			return HexChunkFile.create(handle, WORLD_SIZE, WORLD_SIZE, WORLD_CHUNK);
+		} catch (IOException e) {
+			Gdx.app.log("Hex", "Couldn't make world " + handle.path() + ": " + e.getMessage());
+			return null;
+		}
 	}
 
 	@Override
 	public void hide() {
-		// TODO Auto-generated method stub
-
+		dispose();
 	}
 
 	@Override
@@ -193,8 +361,14 @@ public class HexGridTest implements Screen{
 	public void dispose() {
 		batch.dispose();
 		stageui.dispose();
-		stageaction.dispose();
-		stagehexes.dispose();
+		hexRenderer.dispose();
+		hexLabels.dispose();
+		regions.dispose();
+		if (world != null){
+			worldRenderer.dispose();
+			world.dispose();
+			world = null;
+		}
 
 	}
 
@@ -222,7 +396,18 @@ public class HexGridTest implements Screen{
 
 		@Override
 		public boolean tap (float x, float y, int count, int button) {
-			Gdx.app.log("GestureDetectorTest", "tap at " + x + ", " + y + ", count: " + count);
+			if (streaming){
+				long key = pickWorld(x, y);
+				if (key != -1)
+					world.toggleFlag(world.getQ(key), world.getR(key), HexMap.SELECTED);
+				return false;
+			}
+
+			int hex = pick(x, y);
+			if (hex != -1){
+				Gdx.app.log("Hex", "Tapped [" + hexGrid.map.getQ(hex) + ", " + hexGrid.map.getR(hex) + "]" );
+				hexGrid.map.toggleFlag(hex, HexMap.SELECTED);
+			}
 			return false;
 		}
 
@@ -347,203 +532,33 @@ public class HexGridTest implements Screen{
 
 	public class HexGrid {
 
-		// Grid size is currently max of 75. This should be adequate. Can be altered.
+		// Grid size in hexes across and down the screen. Can be altered, the cell state lives in map.
 		private final int Q = 8, R = 7;
-		public final int TOP_RIGHT = 0, RIGHT = 1, BOTTOM_RIGHT = 2, BOTTOM_LEFT = 3, LEFT = 4, TOP_LEFT = 5;
-		public final int		ARRAY_HEIGHT = R, ARRAY_WIDTH = Q + R/2;
-		private final Hex[][] Hexes = new Hex[ARRAY_WIDTH][ARRAY_HEIGHT];	
+		public final HexMap map = HexMap.rectangle(Q, R);
+		public final HexLayout layout = HexLayout.hexGridTest();
+		public final int		ARRAY_HEIGHT = map.height, ARRAY_WIDTH = map.width;
 
 		float x, y; //center of the HexGrid. Usually game.width/2, game.height/2
 
-		public int[][] neighbors = {	
-
-				{ 0, +1}, //TOP RIGHT
-				{+1,  0}, //RIGHT
-				{+1, -1}, //BOTTOM RIGHT
-				{ 0, -1}, //BOTTOM LEFT
-				{-1,  0}, //LEFT
-				{-1, +1}  //TOP LEFT
-		};
-
 		public HexGrid(float gameWidth, float gameHeight) {
 
-			for (int q = 0; q < ARRAY_WIDTH; q++){
-
-				for (int r = 0; r < ARRAY_HEIGHT; r++){
-
-					Hexes[q][r] = new Hex(q, r);
-
-					//Flag hexes that arent needed
-
-					if ((q == 0 && (r != 6)) ||
-							(q == 1 && 	(r == 0 || r == 1 || r == 2 || r == 3)) ||
-							(q == 2 && (r == 0 || r == 1)) ||
-							(q == 10 && (r != 0)) ||
-							(q == 9 && (r == 3 || r == 4 || r == 5 || r == 6)) ||
-							(q == 8 && (r == 5 || r == 6))
-							){
-						Hexes[q][r].setUsed(false);
-					}
-				}			
-			}
 		}	
 		public float getWidth(){
 
-			return Q*Hex.width + Hex.width/2;
+			return Q*layout.imageWidth + layout.imageWidth/2;
 
 		}
 		public float getHeight(){
 
-			return (R-1)*Hex.height*3/4;
-
-		}
-		public Hex getHex(int q, int r){
-
-			return Hexes[q][r];
+			return (R-1)*layout.imageHeight*3/4;
 
 		}
 
-		public Hex getNeighbor(int q, int r, int direction){
-
-			int[] d = neighbors[direction];
-
-			// If no such hex exists ie it is out of bounds,
-			// return null
-
-			try {
-
-				return Hexes[q + d[0]][r + d[1]];
-
-			} catch (Exception e) {
-
-				return null;
-			}
-		}
-
-		public void draw(SpriteBatch batch){
-
-			for (int q = ARRAY_WIDTH - 1; q >= 0; q--){
-
-				for (int r = ARRAY_HEIGHT - 1; r >= 0; r--){
-					Hexes[q][r].draw(batch, 1);
-				}			
-			}
-		}
-
-		class Hex extends Actor{
-
-			//	Hex
-			//	picwidth = 96
-			//	picheight = 96
-			//	size = height/2
-			//	vert distance = height*3/4 = 72
-			//	hor dist = width
-
-			public static final int TOP_RIGHT = 0, RIGHT = 1, BOTTOM_RIGHT = 2,
-					BOTTOM_LEFT = 3, LEFT = 4, TOP_LEFT = 5;
-
-			public int q, r;   // Grid position
-			public float x, y;  // Pixel position
-
-			private boolean isUsed = true;
-			private boolean isSelected = false;
-
-			public static final float width = 96, height = 96, size = width/2, vert_dist = height*3/4, hor_dist = width/2;
-
-			public Hex(final int q, final int r){
-				this.q = q;
-				this.r = r;
-				setBounds(getX(), getY() + 24, width, 48); //TODO centre hitbox of hex
-
-				addListener(new ActorGestureListener(){
-
-					public void fling(InputEvent event, float velocityX, float velocityY, int button){
-
-					}
-
-					public void tap(InputEvent event, float x, float y, int count, int button){
-						Gdx.app.log("Hex", "Tapped [" + q + ", " + r + "]" );
-						isSelected = !isSelected;
-						//flipNeighbors();
-					}
-				});
-			}
-
-			protected void flipNeighbors() {
+		/** Index of the used hex at x, y in world units, or -1. **/
+		public int pick(float x, float y){
 
-				for (int i = 0; i < 6; i++){
+			return layout.pick(map, x, y);
 
-					try {
-						Hexes[q + neighbors[i][0]][r + neighbors[i][1]].isSelected = !Hexes[q + neighbors[i][0]][r + neighbors[i][1]].isSelected;
-
-					} catch (Exception e) {
-						Gdx.app.log("Error", "Accessed Hex not in array.");
-					}
-				}
-
-			}
-
-			public boolean isUsed() {
-
-				return isUsed ;
-			}
-
-			public void setUsed(boolean used){
-				isUsed = used;		
-
-				if (isUsed == false)
-					setTouchable(Touchable.disabled);
-			}
-
-			public float getX(){
-
-				return (float) (size*1.16f*Math.sqrt(3f) * (q + r/2f)) - width/2; //to centre [0, 0] at x = 0, y = 0. Useful in some algorithms
-
-			}
-
-			public float getY(){
-
-				return (float) (size*3f/2f * r) - height/2; //to centre [0, 0] at x = 0, y = 0. Useful in some algorithms
-
-			}
-
-			@Override
-			public void act(float delta) {
-				// TODO Auto-generated method stub
-				super.act(delta);
-			}
-
-			@Override
-			public void draw(Batch batch, float parentAlpha) {
-				if (isUsed()){
-
-					if (!isSelected)
-						batch.draw(ImageCache.getTexture("hex"), getX(), getY());		
-					else
-						batch.draw(ImageCache.getTexture("hex_selected"), getX(), getY());		
-
-				}
-
-				if (debug)
-					Assets.font24.drawMultiLine(batch, "[" + q + ", " + r + "]", getX() , getY() + 60, width, HAlignment.CENTER);
-
-			}
-
-			public int getCubeX(){		
-				return q;				
-			}
-			public int getCubeY(){
-				return -q - r;
-			}
-			public int getCubeZ(){
-				return r;
-			}
-			public int getAxialQ(){
-				return q;
-			}
-			public int getAxialR(){
-				return r;
-			}
 		}
 	}
 
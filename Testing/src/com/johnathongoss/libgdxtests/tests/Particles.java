@@ -10,22 +10,40 @@ import com.badlogic.gdx.scenes.scene2d.InputEvent;
 import com.badlogic.gdx.scenes.scene2d.ui.TextButton;
 import com.badlogic.gdx.scenes.scene2d.utils.ClickListener;
 import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntArray;
 import com.johnathongoss.libgdxtests.AppData;
 import com.johnathongoss.libgdxtests.Assets;
 import com.johnathongoss.libgdxtests.MyGame;
 import com.johnathongoss.libgdxtests.MyInputProcessor;
 import com.johnathongoss.libgdxtests.ParticleCache;
+import com.johnathongoss.libgdxtests.particles.FillRateMeter;
+import com.johnathongoss.libgdxtests.particles.FlipbookEffect;
+import com.johnathongoss.libgdxtests.particles.MergedParticleRenderer;
+import com.johnathongoss.libgdxtests.particles.MeteredBatch;
+import com.johnathongoss.libgdxtests.particles.StrokeSpawner;
 import com.johnathongoss.libgdxtests.screens.MainMenu;
 
 public class Particles extends BlankTestScreen {
 
 	private  Array<PooledEffect> Effects;
+	private IntArray Types; // effect type of each entry in Effects
+	private Array<FlipbookEffect> Flipbooks;
 	private TextButton switchButton;
 	protected int index = 0, noParticles = 5;
 	private String[] Names = {"Fire", "Frost", "Blood", "Bubbles", "Spark", "Firework"};
+	/** Fill rate tags for the flipbooks, built once rather than every frame **/
+	private String[] BakedNames = new String[Names.length];
 	private boolean continuous = false;
 	private TextButton limitButton;
 	private boolean limitReached = false;
+	private TextButton bakedButton;
+	private boolean baked = false;
+	private boolean showDebug = false;
+	private FillRateMeter meter = new FillRateMeter();
+	private MergedParticleRenderer renderer = new MergedParticleRenderer();
+	private TextButton mergedButton;
+	private boolean merged = true;
+	private StrokeSpawner stroke = new StrokeSpawner();
 	
 	MyInputProcessor input = new MyInputProcessor(){
 
@@ -44,28 +62,68 @@ public class Particles extends BlankTestScreen {
 		super(game);	
 
 		testName = "Particles Test |";
+
+		batch.dispose();
+		batch = new MeteredBatch(meter);
+		renderer.setMeter(meter);
+		for (int i = 0; i < Names.length; i++)
+			BakedNames[i] = Names[i] + " (baked)";
 	}
 
 	@Override
 	public void render(float delta) {
 		Gdx.gl.glClear(GL10.GL_COLOR_BUFFER_BIT);
-		if (Effects.size < 5)
+		if (getCount() < 5)
 			limitReached = false;
 
+		spawnStroke();
+
 		stage.act();
 		stage.draw();
 		batch.setProjectionMatrix(cam.combined);		
+		meter.begin(width, height);
+		meter.setPixelScale(cam);
 		batch.begin();
-		for (PooledEffect effect : Effects){
-			effect.draw(batch, delta);
+		if (merged)
+			renderer.begin();
+		for (int i = 0; i < Effects.size; i++){
+			PooledEffect effect = Effects.get(i);
+			if (merged){
+				effect.update(delta);
+				renderer.add(effect, Names[Types.get(i)]);
+			}
+			else{
+				meter.setTag(Names[Types.get(i)]);
+				effect.draw(batch, delta);
+			}
+		}
+		if (merged)
+			renderer.draw(batch);
+		// Only once drawn, the merged renderer holds on to the effects until then
+		for (int i = 0; i < Effects.size; i++){
+			PooledEffect effect = Effects.get(i);
 			if (effect.isComplete()){
-				Effects.removeValue(effect, true);
+				Effects.removeIndex(i);
+				Types.removeIndex(i);
+				i--;
 				effect.reset();
 				effect.free();					
 			}
 		}
+		for (int i = 0; i < Flipbooks.size; i++){
+			FlipbookEffect flipbook = Flipbooks.get(i);
+			meter.setTag(BakedNames[flipbook.type]);
+			flipbook.draw(batch, delta);
+			if (flipbook.isComplete()){
+				Flipbooks.removeIndex(i);
+				i--;
+				ParticleCache.free(flipbook);
+			}
+		}
+		meter.setTag("UI");
 		renderTestName(batch);
 		batch.end();
+		meter.end();
 
 		updateText();
 		batchui.begin();
@@ -132,24 +190,77 @@ public class Particles extends BlankTestScreen {
 		button.setPosition(width - BUTTON_WIDTH, height - BUTTON_HEIGHT*4);
 		stageui.addActor(button);
 
+		bakedButton = new TextButton("Baked: " + baked, skin);
+		bakedButton.setHeight(BUTTON_HEIGHT);
+		bakedButton.setWidth(BUTTON_WIDTH);		
+		bakedButton.addListener(new ClickListener() {
+			@Override
+			public void clicked(InputEvent event, float x, float y) {	
+				baked = !baked;
+				bakedButton.setText("Baked: " + baked);
+			}
+		});	
+		bakedButton.setPosition(width - BUTTON_WIDTH, height - BUTTON_HEIGHT*5);
+		stageui.addActor(bakedButton);
+
+		debugButton = new TextButton("Debug", skin);
+		debugButton.setHeight(BUTTON_HEIGHT);
+		debugButton.setWidth(BUTTON_WIDTH);		
+		debugButton.addListener(new ClickListener() {
+			@Override
+			public void clicked(InputEvent event, float x, float y) {	
+				showDebug = !showDebug;
+			}
+		});	
+		debugButton.setPosition(width - BUTTON_WIDTH, height - BUTTON_HEIGHT*6);
+		stageui.addActor(debugButton);
+
+		mergedButton = new TextButton("Merged: " + merged, skin);
+		mergedButton.setHeight(BUTTON_HEIGHT);
+		mergedButton.setWidth(BUTTON_WIDTH);		
+		mergedButton.addListener(new ClickListener() {
+			@Override
+			public void clicked(InputEvent event, float x, float y) {	
+				merged = !merged;
+				mergedButton.setText("Merged: " + merged);
+			}
+		});	
+		mergedButton.setPosition(width - BUTTON_WIDTH, height - BUTTON_HEIGHT*7);
+		stageui.addActor(mergedButton);
+
 		Effects = new Array<PooledEffect>();
+		Types = new IntArray();
+		Flipbooks = new Array<FlipbookEffect>();
+	}
+
+	private int getCount(){
+		return Effects.size + Flipbooks.size;
 	}
 
 	protected void clearParticles() {
+		stroke.clear();
 		Effects.clear();
+		Types.clear();
 		for (PooledEffect effect : Effects){				
 			effect.reset();
 			effect.free();	
 		}		
+		for (FlipbookEffect flipbook : Flipbooks)
+			ParticleCache.free(flipbook);
+		Flipbooks.clear();
 	}
 
 	@Override
 	protected void updateText() {
 		Text.clear();
-		Text.add("Count: " + Effects.size + " |");
+		Text.add("Count: " + getCount() + " |");
 		if (limitReached ){
 			Text.add("Limit reached |");
 		}
+		if (showDebug){
+			Text.add("Draw calls: " + batch.renderCalls + (merged ? ", groups: " + renderer.getGroupCount() : "") + " |");
+			meter.report(Text);
+		}
 	}
 
 	@Override
@@ -163,10 +274,13 @@ public class Particles extends BlankTestScreen {
 
 	public void createParticle(int index, float x, float y) {
 
-		if (AppData.Prefs.isLimitParticles() && Effects.size > 19){
+		if (AppData.Prefs.isLimitParticles() && getCount() > 19){
 			limitReached = true;
 		}
 		else{
+			if (baked && !continuous && createFlipbook(index, x, y))
+				return;
+
 			if (!continuous){
 				Effects.add(ParticleCache.getParticleEffect(index));
 
@@ -183,12 +297,49 @@ public class Particles extends BlankTestScreen {
 			}
 
 			Effects.get(Effects.size - 1).setPosition(x, height - y);
+			Types.add(index);
+		}
+	}
+
+	/**
+	 * Drag samples are collected by touchDragged and spawned here once a frame
+	 * as a single effect along the stroke.
+	 */
+	private void spawnStroke() {
+		if (stroke.getSampleCount() == 0)
+			return;
+
+		if (baked && !continuous){
+			// Flipbooks can't be spread along a line, one per frame at the finger
+			createParticle(index, stroke.getLastX(), height - stroke.getLastY());
+			stroke.clear();
+		}
+		else if (AppData.Prefs.isLimitParticles() && getCount() > 19){
+			limitReached = true;
+			stroke.clear();
+		}
+		else{
+			Effects.add(stroke.spawn(index, continuous));
+			Types.add(index);
 		}
 	}
 
+	private boolean createFlipbook(int index, float x, float y) {
+		FlipbookEffect flipbook = ParticleCache.getFlipbookEffect(index);
+		if (flipbook == null)
+			return false;
+
+		flipbook.setPosition(x, height - y);
+		Flipbooks.add(flipbook);
+		return true;
+	}
+
 	@Override
 	public void dispose(){
 		super.dispose();		
+		clearParticles();
+		ParticleCache.disposeFlipbooks();
+		Gdx.app.log("Particles", "Fill rate " + meter.summary());
 
 	}
 
@@ -226,7 +377,7 @@ public class Particles extends BlankTestScreen {
 
 	@Override
 	public boolean touchDragged(int screenX, int screenY, int pointer) {
-		createParticle(index, screenX, screenY);
+		stroke.add(screenX, height - screenY);
 		return false;
 	}
 